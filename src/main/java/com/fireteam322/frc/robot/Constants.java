@@ -7,8 +7,6 @@
 
 package com.fireteam322.frc.robot;
 
-import edu.wpi.first.wpilibj.DriverStation;
-
 /**
  * The Constants class provides a convenient place for teams to hold robot-wide numerical or boolean
  * constants.  This class should not be used for any other purpose.  All constants should be
@@ -18,12 +16,40 @@ import edu.wpi.first.wpilibj.DriverStation;
  * constants are needed, to reduce verbosity.
  */
 public final class Constants {
-	// Robot.java
-	public static final DriverStation DS = DriverStation.getInstance();
+	// ControlLoop.java: setpoints older than the timeout stop the motors, like motor safety did.
+	public static final double CONTROL_LOOP_PERIOD = 0.005,
+				   SETPOINT_TIMEOUT = 0.1;
+
+	// LoopProfiler.java
+	public static final boolean LOOP_PROFILER_ENABLED = true;
+	public static final double LOOP_BUDGET = 0.02,
+				   LOOP_PROFILER_PUBLISH_PERIOD = 1.0;
+
+	// Dashboard.java: the shortest time between sends of a Dashboard output.
+	public static final double DASHBOARD_PUBLISH_PERIOD = 0.1;
+
+	// TelemetryPublisher.java: how often each dashboard field is read, in Hz.
+	public static final double DRIVE_TELEMETRY_RATE = 50.0,
+				   LIMELIGHT_TELEMETRY_RATE = 25.0,
+				   HEADING_TELEMETRY_RATE = 5.0,
+				   PDP_TEMPERATURE_TELEMETRY_RATE = 2.0;
 
 	// AddressableLEDs.java
 	public static final int ADDRESSABLE_LED_PORT = 0,
-				ADDRESSABLE_LED_LENGTH = 60;
+				ADDRESSABLE_LED_LENGTH = 60,
+				BALL_GAUGE_LENGTH = 10,
+				TARGET_LOCK_LENGTH = 10;
+	public static final double ADDRESSABLE_LED_PERIOD = 0.05,
+				   RAINBOW_FRAME_TIME = 0.05;
+
+	// BallCounter.java: the spike currents are above the running current, in amps.
+	public static final int BALL_CAPACITY = 5,
+				BALL_SENSE_STATUS_PERIOD = 5;
+	public static final double INTAKE_SPIKE_CURRENT = 4.0,
+				   FEEDER_SPIKE_CURRENT = 5.0,
+				   BALL_SPIKE_DEBOUNCE = 0.02,
+				   MOTOR_INRUSH_TIME = 0.25,
+				   CURRENT_BASELINE_RATE = 2.0;
 
 	// AutomaticLED.java
 	public static final double AUTONOMOUS_BLINK_RATE = 0.25,
@@ -52,7 +78,10 @@ public final class Constants {
 				DRIVE_LEFTREAR = 2,
 				DRIVE_RIGHTFRONT = 3,
 				DRIVE_RIGHTREAR = 4,
-				TICKS_PER_INCH = 512;
+				TICKS_PER_INCH = 512,
+				CHASSIS_HISTORY_SIZE = 256;
+	public static final double METERS_PER_INCH = 0.0254,
+				   GYRO_RESET_SETTLE_TIME = 0.1;
 
 	// Feeder.java
 	public static final int FEEDER_MOTOR = 5;
@@ -63,8 +92,37 @@ public final class Constants {
 	// Shooter.java
 	public static final int LEFT_SHOOTER_MOTOR = 6;
 	public static final int RIGHT_SHOOTER_MOTOR = 7;
+	// The flywheel encoder is on the roboRIO, the Victor SPXs can't take one.
+	public static final int SHOOTER_ENCODER_A = 0,
+				SHOOTER_ENCODER_B = 1,
+				SHOOTER_ENCODER_CPR = 2048,
+				SHOOTER_ENCODER_SAMPLES = 4;
+	// Velocity control: the feedforward in volts and volts per RPM, the feedback in volts per RPM of error.
+	public static final double SHOOTER_KS = 0.5,
+				   SHOOTER_KV = 0.0021,
+				   SHOOTER_KP = 0.002,
+				   SHOOTER_AT_SPEED_TOLERANCE = 100.0,
+				   SHOOTER_AT_SPEED_TIME = 0.1;
+	// A velocity setpoint driving at least the fault output while the encoder reads under the fault RPM for the
+	// fault time means the encoder is dead (or the flywheel jammed); the shooter then runs on the feedforward alone, at
+	// speed after the spinup time, until the encoder reads the fault RPM again or the next velocity setpoint after a stop.
+	public static final double SHOOTER_ENCODER_FAULT_OUTPUT = 0.3,
+				   SHOOTER_ENCODER_FAULT_RPM = 50.0,
+				   SHOOTER_ENCODER_FAULT_TIME = 0.5,
+				   SHOOTER_OPEN_LOOP_SPINUP_TIME = 1.0;
 
 	// RobotContainer.java
+	public static final boolean CONTROLLER_SNAPSHOTS = true,
+				    SHOOTER_VELOCITY_MODE = false;	// Needs the flywheel encoder on DIO 0/1
+	// AxisShaper.java (the slew rates are in full scale per second)
+	public static final double THROTTLE_DEADBAND = 0.05,
+				   THROTTLE_EXPO = 0.2,
+				   THROTTLE_SLEW_RATE = 3.0,
+				   THROTTLE_RETURN_SLEW_RATE = 6.0,
+				   TURN_DEADBAND = 0.08,
+				   TURN_EXPO = 0.4,
+				   TURN_SLEW_RATE = 5.0,
+				   TURN_RETURN_SLEW_RATE = 10.0;
 	public static final int DRIVE_STICK = 0,
 				MANIPULATOR_STICK = 1,
 				DEBUGGER_STICK = 2,
@@ -74,10 +132,65 @@ public final class Constants {
 				   INTAKE_SPEED = 1.0,
 				   INTAKE_REVERSE_SPEED = -(0.75),
 				   SHOOTER_SPEED = 1.0,
-				   SHOOTER_REVERSE_SPEED = -(0.5);
+				   SHOOTER_REVERSE_SPEED = -(0.5),
+				   SHOOTER_TARGET_RPM = 4500.0;
+
+	// VisionShoot.java (heights in meters, the Limelight angle in degrees up from horizontal)
+	public static final String SHOT_MAP_FILE = "shotmap.csv";
+	public static final double TARGET_HEIGHT = 2.496,
+				   LIMELIGHT_HEIGHT = 0.6,
+				   LIMELIGHT_ANGLE = 25.0,
+				   VISION_AIM_TOLERANCE = 2.0,
+				   DEFAULT_FEED_DELAY = 0.1;
+
+	// TelemetryLogger.java
+	public static final String TELEMETRY_DIRECTORY = "/home/lvuser/logs",
+				   TELEMETRY_USB_DIRECTORY = "/u/logs",
+				   TELEMETRY_SIMULATION_DIRECTORY = "logs",
+				   TELEMETRY_REPLAY_VARIABLE = "TELEMETRY_REPLAY",
+				   TELEMETRY_LOOP_CHANNEL = "Loop";
+	public static final int TELEMETRY_BUFFER_SIZE = 4096,
+				TELEMETRY_MAX_VALUES = 32,
+				TELEMETRY_SEGMENT_SIZE = 8 * 1024 * 1024;
+	// All the logs in the telemetry directory together; the oldest segments are deleted beyond it.
+	public static final long TELEMETRY_MAX_DIRECTORY_SIZE = 128L * 1024 * 1024;
+	public static final double TELEMETRY_FLUSH_PERIOD = 1.0;
 
 	// Robot Power
-	public static final int PDP_CHANNEL = 0;
+	public static final int PDP_CHANNEL = 0,
+				PDP_HISTORY_SIZE = 250;
+	public static final double PDP_SAMPLE_PERIOD = 0.02;
+	// The PDP channels that power each motor.
+	public static final int DRIVE_LEFTFRONT_PDP = 0,
+				DRIVE_LEFTREAR_PDP = 1,
+				DRIVE_RIGHTFRONT_PDP = 15,
+				DRIVE_RIGHTREAR_PDP = 14,
+				LEFT_SHOOTER_PDP = 2,
+				RIGHT_SHOOTER_PDP = 13,
+				FEEDER_PDP = 4,
+				INTAKE_PDP = 11;
+	// CurrentBudget.java
+	public static final double BROWNOUT_WARNING_VOLTAGE = 9.0,
+				   BROWNOUT_CRITICAL_VOLTAGE = 7.5,
+				   BROWNOUT_PREDICTION_TIME = 0.25,
+				   POWER_LIMIT_RECOVERY_RATE = 0.5,
+				   POWER_ACTIVE_CURRENT = 2.0,
+				   CHASSIS_MINIMUM_OUTPUT = 0.6,
+				   SHOOTER_MINIMUM_OUTPUT = 0.5,
+				   FEEDER_MINIMUM_OUTPUT = 0.5,
+				   INTAKE_MINIMUM_OUTPUT = 0.3;
+	// Energy accounting: the current each mechanism counts time above, and how often the totals are published.
+	public static final double CHASSIS_HIGH_CURRENT = 120.0,
+				   SHOOTER_HIGH_CURRENT = 60.0,
+				   FEEDER_HIGH_CURRENT = 30.0,
+				   INTAKE_HIGH_CURRENT = 30.0,
+				   ENERGY_PUBLISH_PERIOD = 0.5;
+	public static final int POWER_MAX_MECHANISMS = 8;
+	public static final int POWER_TREND_SAMPLES = 10,
+				CHASSIS_POWER_PRIORITY = 3,
+				SHOOTER_POWER_PRIORITY = 2,
+				FEEDER_POWER_PRIORITY = 1,
+				INTAKE_POWER_PRIORITY = 0;
 
 	// Autonomous
 	public static final double DEFAULT_AUTONOMOUS_DISTANCE = 24.0,
@@ -86,4 +199,12 @@ public final class Constants {
 				   AUTONOMOUS_DISTANCE_ERROR_FACTOR = 6.0,
 				   DEFAULT_AUTONOMOUS_TIME = 5.0,
 				   SHOOTER_AUTONOMOUS_DRIVETIME = 3.0;
+	// ShootingSequence.java: each step ends on its sensor, or after its time limit if the sensor never says so.
+	public static final double SHOOTER_AUTONOMOUS_DISTANCE = 60.0,
+				   SHOOTER_AUTONOMOUS_TURN_ANGLE = 20.0,
+				   SHOOTER_AUTONOMOUS_TURNTIME = 0.5,
+				   SHOOTER_AUTONOMOUS_SPINUPTIME = 1.0,
+				   SHOOTER_AUTONOMOUS_FIRETIME = 5.0,
+				   SHOOTER_AUTONOMOUS_TIME = 10.0;
+	public static final int SHOOTER_AUTONOMOUS_BALLS = 3;
 }
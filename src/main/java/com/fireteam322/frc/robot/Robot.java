@@ -10,6 +10,10 @@ package com.fireteam322.frc.robot;
 import edu.wpi.first.wpilibj.TimedRobot;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.CommandScheduler;
+import com.fireteam322.frc.robot.utilities.DriverStationMonitor;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
+import com.fireteam322.frc.robot.utilities.TelemetryPublisher;
+import io.github.oblarg.oblog.Logger;
 
 /**
  * The VM is configured to automatically run this class, and to call the functions corresponding to
@@ -20,6 +24,8 @@ import edu.wpi.first.wpilibj2.command.CommandScheduler;
 public class Robot extends TimedRobot {
 	private Command m_autonomousCommand;
 	private RobotContainer m_robotContainer;
+	private LoopProfiler m_profiler;
+	private int m_inputsPhase, m_schedulerPhase, m_loggerPhase, m_telemetryPhase;
 
 	/**
 	 * This function is run when the robot is first started up and should be used for any
@@ -27,9 +33,24 @@ public class Robot extends TimedRobot {
 	 */
 	@Override
 	public void robotInit() {
+		// Setup the loop profiler before anything registers phases with it.
+		m_profiler = LoopProfiler.getInstance();
+		m_profiler.setEnabled(Constants.LOOP_PROFILER_ENABLED);
+		m_profiler.setBudget(Constants.LOOP_BUDGET);
+		m_profiler.setPublishPeriod(Constants.LOOP_PROFILER_PUBLISH_PERIOD);
+		m_profiler.profileCommands(CommandScheduler.getInstance());
+
 		// Instantiate our RobotContainer.  This will perform all our button bindings, and put our
 		// autonomous chooser on the dashboard.
 		m_robotContainer = new RobotContainer();
+
+		// The inputs phase covers the Driver Station state, the replay and the controller inputs.
+		m_inputsPhase = m_profiler.registerPhase("Inputs");
+		// The scheduler phase picks up whatever the subsystems and commands didn't mark
+		// (isFinished(), scheduling and the scheduler's own bookkeeping).
+		m_schedulerPhase = m_profiler.registerPhase("CommandScheduler");
+		m_loggerPhase = m_profiler.registerPhase("Oblog");
+		m_telemetryPhase = m_profiler.registerPhase("Telemetry");
 	}
 
 	/**
@@ -41,11 +62,33 @@ public class Robot extends TimedRobot {
 	 */
 	@Override
 	public void robotPeriodic() {
+		m_profiler.startLoop();
+
+		// Capture the Driver Station state once, for everything that runs this loop.
+		DriverStationMonitor.getInstance().update();
+
+		// Play back a recorded log before anything reads its inputs (simulation only), then
+		// capture and record the inputs this loop will use.
+		m_robotContainer.replayTelemetry();
+		m_robotContainer.updateInputs();
+		m_profiler.mark(m_inputsPhase);
+
 		// Runs the Scheduler.  This is responsible for polling buttons, adding newly-scheduled
 		// commands, running already-scheduled commands, removing finished or interrupted commands,
 		// and running subsystem periodic() methods.  This must be called from the robot's periodic
 		// block in order for anything in the Command-based framework to work.
 		CommandScheduler.getInstance().run();
+		m_profiler.mark(m_schedulerPhase);
+
+		// Update the Oblog entries.
+		Logger.updateEntries();
+		m_profiler.mark(m_loggerPhase);
+
+		// Read the dashboard telemetry that's due and send what changed.
+		TelemetryPublisher.getInstance().update(DriverStationMonitor.getInstance().getState().getTimestamp());
+		m_profiler.mark(m_telemetryPhase);
+
+		m_profiler.endLoop();
 	}
 
 	/**
@@ -66,6 +109,13 @@ public class Robot extends TimedRobot {
 	public void autonomousInit() {
 		m_autonomousCommand = m_robotContainer.getAutonomousCommand();
 
+		// Autonomous starts at the field origin, facing down the x axis.
+		m_robotContainer.getChassis().resetPose(0.0, 0.0, 0.0);
+		// Energy is accounted per match, starting with autonomous.
+		m_robotContainer.getRobotPower().resetEnergy();
+		// Autonomous starts with the preloaded balls.
+		m_robotContainer.getBallCounter().setCount(Constants.SHOOTER_AUTONOMOUS_BALLS);
+
 		// schedule the autonomous command
 		if (m_autonomousCommand != null)
 			m_autonomousCommand.schedule();
@@ -86,8 +136,6 @@ public class Robot extends TimedRobot {
 		// this line or comment it out.
 		if (m_autonomousCommand != null)
 			m_autonomousCommand.cancel();
-
-		m_robotContainer.getDashboard().setTab(Tab.kDriver);
 	}
 
 	/**
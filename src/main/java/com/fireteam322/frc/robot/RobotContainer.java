@@ -7,11 +7,20 @@
 
 package com.fireteam322.frc.robot;
 
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Filesystem;
 import edu.wpi.first.wpilibj.GenericHID.Hand;
+import edu.wpi.first.wpilibj.RobotBase;
 import edu.wpi.first.wpilibj.smartdashboard.SendableChooser;
 //import edu.wpi.first.wpilibj.smartdashboard.SmartDashboard;
 import edu.wpi.first.wpilibj2.command.Command;
 import edu.wpi.first.wpilibj2.command.button.JoystickButton;
+import edu.wpi.first.wpilibj2.command.button.POVButton;
 
 import com.fireteam322.frc.robot.commands.AutomaticLED;
 import com.fireteam322.frc.robot.commands.BasicAutonomous;
@@ -25,9 +34,11 @@ import com.fireteam322.frc.robot.commands.RunFeeder;
 import com.fireteam322.frc.robot.commands.RunIntake;
 import com.fireteam322.frc.robot.commands.RunRearCamera;
 import com.fireteam322.frc.robot.commands.RunShooter;
+import com.fireteam322.frc.robot.commands.RunShooterVelocity;
 import com.fireteam322.frc.robot.commands.ShooterAutonomous;
 import com.fireteam322.frc.robot.commands.SimpleAutonomous;
 import com.fireteam322.frc.robot.commands.StraightShooterAutonomous;
+import com.fireteam322.frc.robot.commands.VisionShoot;
 import com.fireteam322.frc.robot.subsystems.AddressableLEDs;
 import com.fireteam322.frc.robot.subsystems.Chassis;
 import com.fireteam322.frc.robot.subsystems.Dashboard;
@@ -38,14 +49,26 @@ import com.fireteam322.frc.robot.subsystems.LimelightCamera;
 import com.fireteam322.frc.robot.subsystems.RearCamera;
 import com.fireteam322.frc.robot.subsystems.RobotPower;
 import com.fireteam322.frc.robot.subsystems.Shooter;
+import com.fireteam322.frc.robot.utilities.AxisShaper;
+import com.fireteam322.frc.robot.utilities.BallCounter;
+import com.fireteam322.frc.robot.utilities.ControlLoop;
+import com.fireteam322.frc.robot.utilities.ControllerRecorder;
+import com.fireteam322.frc.robot.utilities.CurrentSpikeDetector;
 import com.fireteam322.frc.robot.utilities.F310Controller;
+import com.fireteam322.frc.robot.utilities.LEDStatus;
 import com.fireteam322.frc.robot.utilities.Limelight;
 import com.fireteam322.frc.robot.utilities.Limelight.CameraMode;
 import com.fireteam322.frc.robot.utilities.Limelight.LightMode;
+import com.fireteam322.frc.robot.utilities.MappedTelemetrySink;
+import com.fireteam322.frc.robot.utilities.ReplayF310Controller;
+import com.fireteam322.frc.robot.utilities.ShotMap;
+import com.fireteam322.frc.robot.utilities.TelemetryLogger;
+import com.fireteam322.frc.robot.utilities.TelemetryReplay;
 //import com.fireteam322.frc.robot.utilities.RumblePad2;
 
 import io.github.oblarg.oblog.Logger;
 import io.github.oblarg.oblog.annotations.Config;
+import io.github.oblarg.oblog.annotations.Log;
 
 /**
  * This class is where the bulk of the robot should be declared.  Since Command-based is a
@@ -58,21 +81,62 @@ public class RobotContainer {
 	Command m_autoCommand;
 	SendableChooser<Command> autonomousChooser = new SendableChooser<>();
 
+	// The fast control loop has to exist before the subsystems that register with it.
+	private final ControlLoop m_controlLoop = new ControlLoop(Constants.CONTROL_LOOP_PERIOD);
+
+	// So does the telemetry logger.
+	private final TelemetryLogger m_telemetry = createTelemetryLogger();
+
+	// In simulation, a recorded log can be played back (see build.gradle).
+	private final TelemetryReplay m_replay = createTelemetryReplay();
+
 	private final AddressableLEDs m_AddressableLEDs = new AddressableLEDs();
-	private final Chassis m_chassis = new Chassis();
+	private final Chassis m_chassis = new Chassis(m_controlLoop, m_telemetry);
 	private final Dashboard m_dashboard = new Dashboard();
 	private final Feeder m_feeder = new Feeder();
 	private final Intake m_intake = new Intake();
 	private final LED m_led = new LED();
-	private final LimelightCamera m_limelightCamera = new LimelightCamera();
+	// The status both LED outputs show.
+	private final LEDStatus m_ledStatus = new LEDStatus(Constants.DISABLED_BLINK_RATE, Constants.AUTONOMOUS_BLINK_RATE,
+							    Constants.TELOP_BLINK_RATE);
+	private final LimelightCamera m_limelightCamera = new LimelightCamera(m_telemetry);
 	private final RearCamera m_rearCamera = new RearCamera();
-	private final RobotPower m_robotPower = new RobotPower();
-	private final Shooter m_shooter = new Shooter();
+	private final RobotPower m_robotPower = new RobotPower(m_telemetry);
+	// Counts the balls from the intake and feeder current spikes, on the control loop.
+	private final BallCounter m_ballCounter = new BallCounter(m_intake::getCurrent, m_intake::getSpeed,
+								  new CurrentSpikeDetector(Constants.INTAKE_SPIKE_CURRENT,
+											   Constants.BALL_SPIKE_DEBOUNCE,
+											   Constants.MOTOR_INRUSH_TIME,
+											   Constants.CURRENT_BASELINE_RATE),
+								  m_feeder::getCurrent, m_feeder::getSpeed,
+								  new CurrentSpikeDetector(Constants.FEEDER_SPIKE_CURRENT,
+											   Constants.BALL_SPIKE_DEBOUNCE,
+											   Constants.MOTOR_INRUSH_TIME,
+											   Constants.CURRENT_BASELINE_RATE),
+								  Constants.BALL_CAPACITY);
+	private final Shooter m_shooter = new Shooter(m_controlLoop);
+	private final ShotMap m_shotMap = loadShotMap();
 
-	private final F310Controller m_driveStick = new F310Controller(Constants.DRIVE_STICK);
-	private final F310Controller m_manipulatorStick = new F310Controller(Constants.MANIPULATOR_STICK);
+	private final F310Controller m_driveStick = createController(Constants.DRIVE_STICK, "Drive Stick");
+	private final F310Controller m_manipulatorStick = createController(Constants.MANIPULATOR_STICK, "Manipulator Stick");
+	private final ControllerRecorder m_driveStickRecorder = new ControllerRecorder(m_driveStick, "Drive Stick",
+			F310Controller.AXIS_COUNT, F310Controller.BUTTON_COUNT, m_telemetry);
+	private final ControllerRecorder m_manipulatorStickRecorder = new ControllerRecorder(m_manipulatorStick, "Manipulator Stick",
+			F310Controller.AXIS_COUNT, F310Controller.BUTTON_COUNT, m_telemetry);
+	// A marker logged once per loop after the inputs, which paces the replay.
+	private final int m_loopChannel = m_telemetry.registerChannel(Constants.TELEMETRY_LOOP_CHANNEL, "Count");
+	private final double[] m_loopValues = new double[1];
 	//private final RumblePad2 m_debuggerStick = new RumblePad2(Constants.DEBUGGER_STICK);
 
+	// The driver's inputs are shaped before they reach DriveWithJoystick, which bounds the acceleration.
+	private final AxisShaper m_throttleShaper = new AxisShaper(
+		()->m_driveStick.getTriggerAxis(Hand.kRight) - m_driveStick.getTriggerAxis(Hand.kLeft))
+		.withDeadband(Constants.THROTTLE_DEADBAND).withExpo(Constants.THROTTLE_EXPO)
+		.withSlewRate(Constants.THROTTLE_SLEW_RATE, Constants.THROTTLE_RETURN_SLEW_RATE);
+	private final AxisShaper m_turnShaper = new AxisShaper(()->m_driveStick.getX(Hand.kLeft))
+		.withDeadband(Constants.TURN_DEADBAND).withExpo(Constants.TURN_EXPO)
+		.withSlewRate(Constants.TURN_SLEW_RATE, Constants.TURN_RETURN_SLEW_RATE);
+
 	private final JoystickButton m_brakeButton = new JoystickButton(m_driveStick, F310Controller.Button.kA.getValue());
 	//private final JoystickButton m_brakeButton = new JoystickButton(m_debuggerStick, F310Controller.Button.kA.getValue());
 	private final JoystickButton m_logButton = new JoystickButton(m_driveStick, F310Controller.Button.kStart.getValue());
@@ -90,15 +154,15 @@ public class RobotContainer {
 	private final JoystickButton m_LEDDefaultButton = new JoystickButton(m_manipulatorStick, F310Controller.Button.kStickRight.getValue());
 	private final JoystickButton m_intakeReverseButton = new JoystickButton(m_manipulatorStick, F310Controller.Button.kBumperLeft.getValue());
 	private final JoystickButton m_intakeButton = new JoystickButton(m_manipulatorStick, F310Controller.Button.kBumperRight.getValue());
+	private final POVButton m_visionShootButton = new POVButton(m_manipulatorStick, 0);
 
 	/**
 	 * The container for the robot.  Contains subsystems, OI devices, and commands.
 	 */
 	public RobotContainer() {
 		// Assign default commands
-		m_chassis.setDefaultCommand(new DriveWithJoystick(
-						    ()->m_driveStick.getTriggerAxis(Hand.kRight) - m_driveStick.getTriggerAxis(Hand.kLeft),
-						    ()->(m_driveStick.getX(Hand.kLeft)), m_chassis, m_brakeButton, m_logButton));
+		m_chassis.setDefaultCommand(new DriveWithJoystick(m_throttleShaper, m_turnShaper, m_chassis,
+						    m_brakeButton, m_logButton));
 
 		// Default command for debugging purposes
 		//m_chassis.setDefaultCommand(new DriveWithJoystick(
@@ -111,7 +175,8 @@ public class RobotContainer {
 
 		m_intake.setDefaultCommand(new RunIntake(m_intake, ()->- m_manipulatorStick.getY(Hand.kRight)));
 
-		m_led.setDefaultCommand(new AutomaticLED(m_led, m_AddressableLEDs));
+		m_led.setDefaultCommand(new AutomaticLED(m_led, m_AddressableLEDs, m_ledStatus, m_ballCounter,
+							      () -> m_chassis.isAimedAt(m_limelightCamera.getLimelight().getTarget())));
 
 		m_limelightCamera.setDefaultCommand(new LimelightLightModeControl(m_limelightCamera, Limelight.LightMode.kforceOff));
 
@@ -128,6 +193,111 @@ public class RobotContainer {
 
 		// Configure the button bindings
 		configureButtonBindings();
+
+		// Put the mechanisms under the brownout-aware power budget.
+		configurePowerBudget();
+
+		// Feed the recorded vision and power samples back in, if there's a replay.
+		configureReplay();
+
+		// Everything has registered with the control loop and the telemetry logger, so start them.
+		m_controlLoop.register(m_ballCounter::update);
+		m_controlLoop.start();
+		m_telemetry.start();
+	}
+
+	// This method tells the power budget what each mechanism draws, how far it may be limited and when it draws a lot.
+	private void configurePowerBudget() {
+		m_robotPower.addConsumer("Chassis", Constants.CHASSIS_POWER_PRIORITY, Constants.CHASSIS_MINIMUM_OUTPUT,
+					 Constants.CHASSIS_HIGH_CURRENT,
+					 m_chassis::setOutputLimit, Constants.DRIVE_LEFTFRONT_PDP, Constants.DRIVE_LEFTREAR_PDP,
+					 Constants.DRIVE_RIGHTFRONT_PDP, Constants.DRIVE_RIGHTREAR_PDP);
+		m_robotPower.addConsumer("Shooter", Constants.SHOOTER_POWER_PRIORITY, Constants.SHOOTER_MINIMUM_OUTPUT,
+					 Constants.SHOOTER_HIGH_CURRENT,
+					 m_shooter::setOutputLimit, Constants.LEFT_SHOOTER_PDP, Constants.RIGHT_SHOOTER_PDP);
+		m_robotPower.addConsumer("Feeder", Constants.FEEDER_POWER_PRIORITY, Constants.FEEDER_MINIMUM_OUTPUT,
+					 Constants.FEEDER_HIGH_CURRENT,
+					 m_feeder::setOutputLimit, Constants.FEEDER_PDP);
+		m_robotPower.addConsumer("Intake", Constants.INTAKE_POWER_PRIORITY, Constants.INTAKE_MINIMUM_OUTPUT,
+					 Constants.INTAKE_HIGH_CURRENT,
+					 m_intake::setOutputLimit, Constants.INTAKE_PDP);
+	}
+
+	// This method hands the replayed Limelight snapshots and PDP samples to what reads them live.
+	private void configureReplay() {
+		if (m_replay == null)
+			return;
+		var limelight = m_limelightCamera.getLimelight();
+		m_replay.addListener("Limelight", (timestamp, values, count) -> limelight.replayTarget(values, count));
+		var sampler = m_robotPower.getSampler();
+		m_replay.addListener("PDP", (timestamp, values, count) -> sampler.replay(values, count));
+	}
+
+	// This method picks where the telemetry goes: the USB stick if there is one, the roboRIO if not.
+	private static TelemetryLogger createTelemetryLogger() {
+		String directory;
+		if (!RobotBase.isReal())
+			directory = Constants.TELEMETRY_SIMULATION_DIRECTORY;
+		else if (new File(Constants.TELEMETRY_USB_DIRECTORY).getParentFile().isDirectory())
+			directory = Constants.TELEMETRY_USB_DIRECTORY;
+		else
+			directory = Constants.TELEMETRY_DIRECTORY;
+		var name = "telemetry-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+		var sink = new MappedTelemetrySink(new File(directory), name, Constants.TELEMETRY_SEGMENT_SIZE,
+						   Constants.TELEMETRY_MAX_DIRECTORY_SIZE);
+
+		return new TelemetryLogger(sink,
+					   Constants.TELEMETRY_BUFFER_SIZE, Constants.TELEMETRY_MAX_VALUES,
+					   Constants.TELEMETRY_FLUSH_PERIOD);
+	}
+
+	// This method plays back a recorded log if TELEMETRY_REPLAY names one (simulation only).
+	private static TelemetryReplay createTelemetryReplay() {
+		var log = System.getenv(Constants.TELEMETRY_REPLAY_VARIABLE);
+		if (RobotBase.isReal() || log == null || log.isEmpty())
+			return null;
+		var replay = new TelemetryReplay(new File(log));
+		// The loop marker follows every loop's inputs, so replaying up to each one reproduces the session loop by loop.
+		replay.setPaceChannel(Constants.TELEMETRY_LOOP_CHANNEL);
+		return replay;
+	}
+
+	// This method loads the shot map from the deploy directory, falling back to the fixed shooter speed.
+	private static ShotMap loadShotMap() {
+		try {
+			return ShotMap.load(new File(Filesystem.getDeployDirectory(), Constants.SHOT_MAP_FILE));
+		} catch (IOException e) {
+			DriverStation.reportError("Can't load the shot map: " + e.getMessage(), false);
+			return new ShotMap(new double[] { 0.0 }, new double[] { Constants.SHOOTER_TARGET_RPM },
+					   new double[] { Constants.DEFAULT_FEED_DELAY });
+		}
+	}
+
+	// This method replays the recorded samples up to now, if there's a replay.
+	public void replayTelemetry() {
+		if (m_replay != null)
+			m_replay.update();
+	}
+
+	// This method creates a controller, or one that plays back the recorded one when replaying.
+	private F310Controller createController(int port, String channel) {
+		if (m_replay == null) {
+			var controller = new F310Controller(port);
+			controller.setSnapshotMode(Constants.CONTROLLER_SNAPSHOTS);
+			return controller;
+		}
+		return new ReplayF310Controller(port, m_replay, channel);
+	}
+
+	// This method captures (and records) the controller inputs for this loop.
+	public void updateInputs() {
+		m_driveStick.updateSnapshot();
+		m_manipulatorStick.updateSnapshot();
+
+		m_driveStickRecorder.record();
+		m_manipulatorStickRecorder.record();
+		m_loopValues[0]++;
+		m_telemetry.log(m_loopChannel, m_loopValues);
 	}
 
 	/**
@@ -154,13 +324,35 @@ public class RobotContainer {
 		m_feederButton.whileActiveOnce(new RunFeeder(m_feeder, ()->Constants.FEEDER_SPEED), true);
 		m_feederReverseButton.whileActiveOnce(new RunFeeder(m_feeder, ()->Constants.FEEDER_REVERSE_SPEED), true);
 
-		m_shooterButton.whileActiveOnce(new RunShooter(m_shooter, ()->Constants.SHOOTER_SPEED), true);
+		if (Constants.SHOOTER_VELOCITY_MODE)
+			m_shooterButton.whileActiveOnce(new RunShooterVelocity(m_shooter, ()->Constants.SHOOTER_TARGET_RPM), true);
+		else
+			m_shooterButton.whileActiveOnce(new RunShooter(m_shooter, ()->Constants.SHOOTER_SPEED), true);
 		m_shooterReverseButton.whileActiveOnce(new RunShooter(m_shooter, ()->Constants.SHOOTER_REVERSE_SPEED), true);
 
+		m_visionShootButton.whileActiveOnce(new VisionShoot(m_shooter, m_feeder, m_limelightCamera, m_chassis, m_shotMap));
+
 		m_intakeButton.whileActiveOnce(new RunIntake(m_intake, ()->Constants.INTAKE_SPEED));
 		m_intakeReverseButton.whileActiveOnce(new RunIntake(m_intake, ()->Constants.INTAKE_REVERSE_SPEED));
 	}
 
+	@Log(name = "Balls", tabName = "Debugger", columnIndex = 12, rowIndex = 4)
+	public int getBallCount() {
+		return m_ballCounter.getCount();
+	}
+
+	public BallCounter getBallCounter() {
+		return m_ballCounter;
+	}
+
+	public Chassis getChassis() {
+		return m_chassis;
+	}
+
+	public RobotPower getRobotPower() {
+		return m_robotPower;
+	}
+
 	public Dashboard getDashboard() {
 		return m_dashboard;
 	}
@@ -172,8 +364,8 @@ public class RobotContainer {
 		autonomousChooser.addOption("Basic Autonomous", new BasicAutonomous(m_chassis));
 		autonomousChooser.addOption("Forward Autonomous", new ForwardAutonomous(m_chassis));
 		autonomousChooser.addOption("Simple Autonomous", new SimpleAutonomous(m_chassis));
-		autonomousChooser.addOption("Shooter Autonomous", new ShooterAutonomous(m_chassis, m_feeder, m_shooter));
-		autonomousChooser.addOption("Straight Shooter", new StraightShooterAutonomous(m_chassis, m_feeder, m_shooter));
+		autonomousChooser.addOption("Shooter Autonomous", new ShooterAutonomous(m_chassis, m_feeder, m_shooter, m_ballCounter));
+		autonomousChooser.addOption("Straight Shooter", new StraightShooterAutonomous(m_chassis, m_feeder, m_shooter, m_ballCounter));
 
 		// Add the Autonomous SendableChooser to the Shuffleboard
 		m_dashboard.getAutonomousTab().add("Autonomous Mode", getChooser());
@@ -192,6 +384,43 @@ public class RobotContainer {
 		return autonomousChooser;
 	}
 
+	// The input shaping can be tuned from the dashboard.
+	@Config(name = "Throttle Deadband", tabName = "Debugger", columnIndex = 11, rowIndex = 0,
+		defaultValueNumeric = Constants.THROTTLE_DEADBAND)
+	public void setThrottleDeadband(double deadband) {
+		m_throttleShaper.withDeadband(deadband);
+	}
+
+	@Config(name = "Throttle Expo", tabName = "Debugger", columnIndex = 11, rowIndex = 1,
+		defaultValueNumeric = Constants.THROTTLE_EXPO)
+	public void setThrottleExpo(double expo) {
+		m_throttleShaper.withExpo(expo);
+	}
+
+	@Config(name = "Throttle Slew Rate", tabName = "Debugger", columnIndex = 11, rowIndex = 2,
+		defaultValueNumeric = Constants.THROTTLE_SLEW_RATE)
+	public void setThrottleSlewRate(double rate) {
+		m_throttleShaper.withSlewRate(rate, m_throttleShaper.getReturnSlewRate());
+	}
+
+	@Config(name = "Turn Deadband", tabName = "Debugger", columnIndex = 11, rowIndex = 3,
+		defaultValueNumeric = Constants.TURN_DEADBAND)
+	public void setTurnDeadband(double deadband) {
+		m_turnShaper.withDeadband(deadband);
+	}
+
+	@Config(name = "Turn Expo", tabName = "Debugger", columnIndex = 11, rowIndex = 4,
+		defaultValueNumeric = Constants.TURN_EXPO)
+	public void setTurnExpo(double expo) {
+		m_turnShaper.withExpo(expo);
+	}
+
+	@Config(name = "Turn Slew Rate", tabName = "Debugger", columnIndex = 11, rowIndex = 5,
+		defaultValueNumeric = Constants.TURN_SLEW_RATE)
+	public void setTurnSlewRate(double rate) {
+		m_turnShaper.withSlewRate(rate, m_turnShaper.getReturnSlewRate());
+	}
+
 	/**
 	 * Use this to pass the autonomous command to the main {@link Robot} class.
 	 *
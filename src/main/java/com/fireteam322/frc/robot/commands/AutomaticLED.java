@@ -7,21 +7,33 @@
 
 package com.fireteam322.frc.robot.commands;
 
+import java.util.function.BooleanSupplier;
+
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj2.command.CommandBase;
 import com.fireteam322.frc.robot.Constants;
 import com.fireteam322.frc.robot.subsystems.AddressableLEDs;
 import com.fireteam322.frc.robot.subsystems.LED;
+import com.fireteam322.frc.robot.utilities.BallCounter;
+import com.fireteam322.frc.robot.utilities.DriverStationMonitor;
+import com.fireteam322.frc.robot.utilities.LEDStatus;
 
 public class AutomaticLED extends CommandBase {
 	private final LED m_led;
 	private final AddressableLEDs m_addressableLEDs;
+	private final BallCounter m_ballCounter;
+	private final BooleanSupplier m_targetLock;
+	private final LEDStatus m_status;
 	/**
 	 * Creates a new AutomaticLED.
 	 */
-	public AutomaticLED(LED led, AddressableLEDs addressableLEDs) {
+	public AutomaticLED(LED led, AddressableLEDs addressableLEDs, LEDStatus status, BallCounter ballCounter,
+			    BooleanSupplier targetLock) {
 		m_led = led;
 		m_addressableLEDs = addressableLEDs;
+		m_status = status;
+		m_ballCounter = ballCounter;
+		m_targetLock = targetLock;
 		// Use addRequirements() here to declare subsystem dependencies.
 		addRequirements(m_led);
 		addRequirements(m_addressableLEDs);
@@ -31,23 +43,26 @@ public class AutomaticLED extends CommandBase {
 	@Override
 	public void initialize() {
 		m_led.setRGB(Color.kWhite, Constants.DEFAULT_BLINK_RATE);
-		for(var i = 0; i < m_addressableLEDs.getLength(); i++)
-			m_addressableLEDs.setLED(i, Color.kWhite);
+		m_addressableLEDs.setWhite(0.0);
 	}
 
 	// Called every time the scheduler runs while the command is scheduled.
 	@Override
 	public void execute() {
-		m_led.automaticLEDSetter();
-		m_addressableLEDs.automaticLEDSetter();
+		// Work out the status once, and show it on both outputs.
+		m_status.update(DriverStationMonitor.getInstance().getState());
+		m_led.showStatus(m_status);
+		m_addressableLEDs.showStatus(m_status);
+		m_addressableLEDs.showBallCount(m_ballCounter.getCount());
+		m_addressableLEDs.showTargetLock(m_targetLock.getAsBoolean());
 	}
 
 	// Called once the command ends or is interrupted.
 	@Override
 	public void end(boolean interrupted) {
 		m_led.setRGB(Color.kWhite, Constants.DEFAULT_BLINK_RATE);
-		for(var i = 0; i < m_addressableLEDs.getLength(); i++)
-			m_addressableLEDs.setLED(i, Color.kWhite);
+		m_addressableLEDs.clearOverlays();
+		m_addressableLEDs.setWhite(0.0);
 	}
 
 	// Returns true when the command should end.
@@ -7,15 +7,15 @@
 
 package com.fireteam322.frc.robot.commands;
 
-import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.CommandBase;
-import com.fireteam322.frc.robot.Constants;
 import com.fireteam322.frc.robot.subsystems.Dashboard;
+import com.fireteam322.frc.robot.utilities.DriverStationMonitor;
 
 public class DashboardUpdater extends CommandBase {
 	private final Dashboard m_dashboard;
 	/**
-	 * Creates a new DashboardUpdater.
+	 * Creates a new DashboardUpdater, which sends the Dashboard's changed outputs every loop. Tabs
+	 * are selected by the Dashboard itself, when the robot mode changes.
 	 */
 	public DashboardUpdater(Dashboard dashboard) {
 		m_dashboard = dashboard;
@@ -31,15 +31,8 @@ public class DashboardUpdater extends CommandBase {
 	// Called every time the scheduler runs while the command is scheduled.
 	@Override
 	public void execute() {
-		if (Constants.DS.isAutonomous()) {
-			Shuffleboard.selectTab("Autonomous");
-		}
-		else if (Constants.DS.isOperatorControl()) {
-			Shuffleboard.selectTab("Driver");
-		}
-		else {
-			Shuffleboard.selectTab("Debugger");
-		}
+		var state = DriverStationMonitor.getInstance().getState();
+		m_dashboard.update(state, state.getTimestamp());
 	}
 
 	// Called once the command ends or is interrupted.
@@ -0,0 +1,51 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package com.fireteam322.frc.robot.commands;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import com.fireteam322.frc.robot.subsystems.Shooter;
+
+public class RunShooterVelocity extends CommandBase {
+	private final Shooter m_shooter;
+	private final DoubleSupplier m_velocity;
+	/**
+	 * Creates a new RunShooterVelocity, which holds the shooter at a velocity in RPM.
+	 */
+	public RunShooterVelocity(Shooter shooter, DoubleSupplier velocity) {
+		m_shooter = shooter;
+		m_velocity = velocity;
+		// Use addRequirements() here to declare subsystem dependencies.
+		addRequirements(m_shooter);
+	}
+
+	// Called when the command is initially scheduled.
+	@Override
+	public void initialize() {
+	}
+
+	// Called every time the scheduler runs while the command is scheduled.
+	@Override
+	public void execute() {
+		m_shooter.runVelocity(m_velocity.getAsDouble());
+	}
+
+	// Called once the command ends or is interrupted.
+	@Override
+	public void end(boolean interrupted) {
+		if (!interrupted)
+			m_shooter.stop();
+	}
+
+	// Returns true when the command should end.
+	@Override
+	public boolean isFinished() {
+		return false;
+	}
+}
@@ -0,0 +1,159 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package com.fireteam322.frc.robot.commands;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.subsystems.Chassis;
+import com.fireteam322.frc.robot.subsystems.Feeder;
+import com.fireteam322.frc.robot.subsystems.Shooter;
+import com.fireteam322.frc.robot.utilities.BallCounter;
+
+/**
+ * Drives back, optionally turns, and shoots, moving on as soon as the sensors say each step is
+ * done rather than after fixed times.
+ *
+ * <ul>
+ * <li>Drive: until the field pose has moved the distance from where it started.
+ * <li>Turn: until the gyro has turned through the angle.
+ * <li>Spin up: until the flywheel is at speed.
+ * <li>Fire: feeds while the flywheel is at speed, until the ball counter has seen every ball fed
+ * to the shooter.
+ * </ul>
+ *
+ * <p>Each step also has a time limit, so a sensor that never reports only costs the time the old
+ * timed sequence took. If the flywheel never gets to speed (or velocity mode is off), the sequence
+ * falls back to shooting open loop, feeding until the balls are counted or the fire time runs out.
+ */
+public class ShootingSequence extends CommandBase {
+	private enum State {
+		kDrive, kTurn, kSpinUp, kFire, kDone
+	}
+
+	private final Chassis m_chassis;
+	private final Feeder m_feeder;
+	private final Shooter m_shooter;
+	private final BallCounter m_ballCounter;
+	private final boolean m_turn;
+
+	private State m_state;
+	private double m_startTime, m_stateTime;
+	private double m_startX, m_startY, m_startAngle;
+	private int m_startShots;
+	private boolean m_openLoop;
+	/**
+	 * Creates a new ShootingSequence.
+	 *
+	 * @param ballCounter The ball counter, which counts the balls fed to the shooter
+	 * @param turn Whether to turn after driving back
+	 */
+	public ShootingSequence(Chassis chassis, Feeder feeder, Shooter shooter, BallCounter ballCounter, boolean turn) {
+		m_chassis = chassis;
+		m_feeder = feeder;
+		m_shooter = shooter;
+		m_ballCounter = ballCounter;
+		m_turn = turn;
+		// Use addRequirements() here to declare subsystem dependencies.
+		addRequirements(m_chassis, m_feeder, m_shooter);
+	}
+
+	// Called when the command is initially scheduled.
+	@Override
+	public void initialize() {
+		m_startTime = Timer.getFPGATimestamp();
+		m_startX = m_chassis.getPoseX();
+		m_startY = m_chassis.getPoseY();
+		m_openLoop = !Constants.SHOOTER_VELOCITY_MODE;
+		setState(State.kDrive, m_startTime);
+	}
+
+	// Called every time the scheduler runs while the command is scheduled.
+	@Override
+	public void execute() {
+		var now = Timer.getFPGATimestamp();
+		var elapsed = now - m_stateTime;
+
+		switch (m_state) {
+		case kDrive:
+			var distance = Math.hypot(m_chassis.getPoseX() - m_startX, m_chassis.getPoseY() - m_startY)
+				       / Constants.METERS_PER_INCH;
+			if (distance >= Constants.SHOOTER_AUTONOMOUS_DISTANCE
+			    || elapsed >= Constants.SHOOTER_AUTONOMOUS_DRIVETIME) {
+				m_startAngle = m_chassis.getAngle();
+				setState(m_turn ? State.kTurn : State.kSpinUp, now);
+			} else {
+				m_chassis.drive(-Constants.DEFAULT_AUTONOMOUS_SPEED, Constants.DEFAULT_AUTONOMOUS_HEADING);
+			}
+			break;
+		case kTurn:
+			// The flywheel spins up while the robot turns.
+			spinUp();
+			if (Math.abs(m_chassis.getAngle() - m_startAngle) >= Constants.SHOOTER_AUTONOMOUS_TURN_ANGLE
+			    || elapsed >= Constants.SHOOTER_AUTONOMOUS_TURNTIME)
+				setState(State.kSpinUp, now);
+			else
+				m_chassis.drive(0.0, -Constants.DEFAULT_AUTONOMOUS_SPEED);
+			break;
+		case kSpinUp:
+			m_chassis.stop();
+			spinUp();
+			if (!m_openLoop && m_shooter.isAtSpeed()) {
+				m_startShots = m_ballCounter.getShots();
+				setState(State.kFire, now);
+			} else if (elapsed >= Constants.SHOOTER_AUTONOMOUS_SPINUPTIME) {
+				// No speed from the flywheel: shoot open loop, and feed without waiting for it.
+				m_openLoop = true;
+				spinUp();
+				m_startShots = m_ballCounter.getShots();
+				setState(State.kFire, now);
+			}
+			break;
+		case kFire:
+			spinUp();
+			if (m_openLoop || m_shooter.isAtSpeed())
+				m_feeder.run(Constants.FEEDER_SPEED);
+			else
+				m_feeder.stop();
+			if (m_ballCounter.getShots() - m_startShots >= Constants.SHOOTER_AUTONOMOUS_BALLS
+			    || elapsed >= Constants.SHOOTER_AUTONOMOUS_FIRETIME)
+				setState(State.kDone, now);
+			break;
+		case kDone:
+			break;
+		}
+	}
+
+	// Called once the command ends or is interrupted.
+	@Override
+	public void end(boolean interrupted) {
+		m_chassis.stop();
+		m_shooter.stop();
+		m_feeder.stop();
+	}
+
+	// Returns true when the command should end.
+	@Override
+	public boolean isFinished() {
+		return m_state == State.kDone
+		       || Timer.getFPGATimestamp() - m_startTime >= Constants.SHOOTER_AUTONOMOUS_TIME;
+	}
+
+	private void setState(State state, double now) {
+		m_state = state;
+		m_stateTime = now;
+	}
+
+	// This method runs the shooter in whichever mode the sequence is using.
+	private void spinUp() {
+		if (m_openLoop)
+			m_shooter.run(Constants.SHOOTER_SPEED);
+		else
+			m_shooter.runVelocity(Constants.SHOOTER_TARGET_RPM);
+	}
+}
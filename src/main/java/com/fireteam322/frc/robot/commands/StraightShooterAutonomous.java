@@ -7,68 +7,16 @@
 
 package com.fireteam322.frc.robot.commands;
 
-import edu.wpi.first.wpilibj.Timer;
-import edu.wpi.first.wpilibj2.command.CommandBase;
-import com.fireteam322.frc.robot.Constants;
 import com.fireteam322.frc.robot.subsystems.Chassis;
 import com.fireteam322.frc.robot.subsystems.Feeder;
 import com.fireteam322.frc.robot.subsystems.Shooter;
-import io.github.oblarg.oblog.annotations.Config;
+import com.fireteam322.frc.robot.utilities.BallCounter;
 
-public class StraightShooterAutonomous extends CommandBase {
-	private final Chassis m_chassis;
-	private final Feeder m_feeder;
-	private final Shooter m_shooter;
-
-	@Config
-	private double startTime;
+public class StraightShooterAutonomous extends ShootingSequence {
 	/**
-	 * Creates a new ShooterAutonomous.
+	 * Creates a new StraightShooterAutonomous, which drives back, and shoots.
 	 */
-	public StraightShooterAutonomous(Chassis chassis, Feeder feeder, Shooter shooter) {
-		m_chassis = chassis;
-		m_feeder = feeder;
-		m_shooter = shooter;
-		// Use addRequirements() here to declare subsystem dependencies.
-		addRequirements(m_chassis);
-		addRequirements(m_feeder);
-		addRequirements(m_shooter);
-	}
-
-	// Called when the command is initially scheduled.
-	@Override
-	public void initialize() {
-		startTime = Timer.getFPGATimestamp();
-	}
-
-	// Called every time the scheduler runs while the command is scheduled.
-	@Override
-	public void execute() {
-		if (Timer.getFPGATimestamp() < (startTime + 3.0))
-			m_chassis.drive(-Constants.DEFAULT_AUTONOMOUS_SPEED, Constants.DEFAULT_AUTONOMOUS_HEADING);
-		else if (Timer.getFPGATimestamp() < (startTime + 3.0 + 1.0)) {
-			m_shooter.run(Constants.SHOOTER_SPEED);
-		}
-		else if (Timer.getFPGATimestamp() > (startTime + 3.0 + 1.0 + 0.75)) {
-			m_shooter.run(Constants.SHOOTER_SPEED);
-			m_feeder.run(Constants.FEEDER_SPEED);
-		}
-	}
-
-	// Called once the command ends or is interrupted.
-	@Override
-	public void end(boolean interrupted) {
-		m_chassis.stop();
-		m_shooter.stop();
-		m_feeder.stop();
-	}
-
-	// Returns true when the command should end.
-	@Override
-	public boolean isFinished() {
-		if(Timer.getFPGATimestamp() < (startTime + 10.0))
-			return false;
-		else
-			return true;
+	public StraightShooterAutonomous(Chassis chassis, Feeder feeder, Shooter shooter, BallCounter ballCounter) {
+		super(chassis, feeder, shooter, ballCounter, false);
 	}
 }
@@ -0,0 +1,100 @@
+/*----------------------------------------------------------------------------*/
+/* Copyright (c) 2019 FIRST. All Rights Reserved.                             */
+/* Open Source Software - may be modified and shared by FRC teams. The code   */
+/* must be accompanied by the FIRST BSD license file in the root directory of */
+/* the project.                                                               */
+/*----------------------------------------------------------------------------*/
+
+package com.fireteam322.frc.robot.commands;
+
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj2.command.CommandBase;
+import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.subsystems.Chassis;
+import com.fireteam322.frc.robot.subsystems.Feeder;
+import com.fireteam322.frc.robot.subsystems.LimelightCamera;
+import com.fireteam322.frc.robot.subsystems.Shooter;
+import com.fireteam322.frc.robot.utilities.Limelight;
+import com.fireteam322.frc.robot.utilities.Limelight.CameraMode;
+import com.fireteam322.frc.robot.utilities.Limelight.LightMode;
+import com.fireteam322.frc.robot.utilities.ShotMap;
+
+public class VisionShoot extends CommandBase {
+	private final Shooter m_shooter;
+	private final Feeder m_feeder;
+	private final LimelightCamera m_limelightCamera;
+	private final Chassis m_chassis;
+	private final ShotMap m_shotMap;
+
+	private double m_velocity;
+	private double m_feedDelay;
+	private double m_readySince;
+	/**
+	 * Creates a new VisionShoot, which sets the shooter speed from the distance to the target and
+	 * feeds balls while the shooter is at speed and the robot is aimed at the target. The chassis is
+	 * only read (to compensate the aim for vision latency), so the driver can keep turning.
+	 */
+	public VisionShoot(Shooter shooter, Feeder feeder, LimelightCamera limelightCamera, Chassis chassis,
+			   ShotMap shotMap) {
+		m_shooter = shooter;
+		m_feeder = feeder;
+		m_limelightCamera = limelightCamera;
+		m_chassis = chassis;
+		m_shotMap = shotMap;
+		// Use addRequirements() here to declare subsystem dependencies.
+		addRequirements(m_shooter, m_feeder, m_limelightCamera);
+	}
+
+	// Called when the command is initially scheduled.
+	@Override
+	public void initialize() {
+		m_limelightCamera.getLimelight().setCameraMode(CameraMode.kvision);
+		m_limelightCamera.getLimelight().setLedMode(LightMode.kforceOn);
+		// Until the target is seen, spin up to the default speed and don't feed.
+		m_velocity = Constants.SHOOTER_TARGET_RPM;
+		m_feedDelay = Constants.DEFAULT_FEED_DELAY;
+		m_readySince = Double.NaN;
+	}
+
+	// Called every time the scheduler runs while the command is scheduled.
+	@Override
+	public void execute() {
+		var target = m_limelightCamera.getLimelight().getTarget();
+		if (target.isValid()) {
+			var distance = Limelight.getDist(target, Constants.TARGET_HEIGHT, Constants.LIMELIGHT_HEIGHT,
+							 Constants.LIMELIGHT_ANGLE);
+			m_velocity = m_shotMap.getVelocity(distance);
+			m_feedDelay = m_shotMap.getFeedDelay(distance);
+		}
+		m_shooter.runVelocity(m_velocity);
+
+		// Feed once the shooter has been at speed, and the robot aimed, for the feed delay.
+		var now = Timer.getFPGATimestamp();
+		var aimed = m_chassis.isAimedAt(target);
+		if (!(aimed && m_shooter.isAtSpeed()))
+			m_readySince = Double.NaN;
+		else if (Double.isNaN(m_readySince))
+			m_readySince = now;
+
+		if (!Double.isNaN(m_readySince) && now - m_readySince >= m_feedDelay)
+			m_feeder.run(Constants.FEEDER_SPEED);
+		else
+			m_feeder.stop();
+	}
+
+	// Called once the command ends or is interrupted.
+	@Override
+	public void end(boolean interrupted) {
+		m_feeder.stop();
+		m_shooter.stop();
+		// Back to driver mode with the lights off, as the Limelight starts out.
+		m_limelightCamera.getLimelight().setCameraMode(CameraMode.kdriver);
+		m_limelightCamera.getLimelight().setLedMode(LightMode.kforceOff);
+	}
+
+	// Returns true when the command should end.
+	@Override
+	public boolean isFinished() {
+		return false;
+	}
+}
@@ -8,129 +8,104 @@
 package com.fireteam322.frc.robot.subsystems;
 
 import edu.wpi.first.wpilibj.DriverStation;
-import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.AddressableLED;
-import edu.wpi.first.wpilibj.AddressableLEDBuffer;
 import edu.wpi.first.wpilibj.util.Color;
-import edu.wpi.first.wpilibj.util.Color8Bit;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.utilities.LEDAnimator;
+import com.fireteam322.frc.robot.utilities.LEDPattern;
+import com.fireteam322.frc.robot.utilities.LEDStatus;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
 
 public class AddressableLEDs extends SubsystemBase {
+	// The layers, bottom to top.
+	private static final int BASE_LAYER = 0, BALL_LAYER = 1, TARGET_LAYER = 2, LAYERS = 3;
+
 	private final AddressableLED m_LED;
-	private final AddressableLEDBuffer m_LEDBuffer;
-	private Color m_ledColor;
-	private int m_rainbowFirstPixelHue;
-	private double m_startTime;
+	private final LEDAnimator m_animator;
+
+	// Every pattern is computed once, here.
+	private final LEDPattern m_red, m_blue, m_invalid, m_unknown, m_white, m_rainbow;
+	private final LEDPattern m_ballGauge;
+	private final LEDPattern m_targetLock;
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
 	/**
 	 * Creates a new AddressableLEDs.
 	 */
 	public AddressableLEDs() {
 		super();
-		m_startTime = 0.0;
-		m_rainbowFirstPixelHue = 0;
+		var length = Constants.ADDRESSABLE_LED_LENGTH;
+
+		m_red = LEDPattern.solid(length, Color.kFirstRed);
+		m_blue = LEDPattern.solid(length, Color.kFirstBlue);
+		m_invalid = LEDPattern.solid(length, Color.kKhaki);
+		m_unknown = LEDPattern.solid(length, Color.kDarkMagenta);
+		m_white = LEDPattern.solid(length, Color.kWhite);
+		m_rainbow = LEDPattern.rainbow(length, 60, Constants.RAINBOW_FRAME_TIME);
+		m_ballGauge = LEDPattern.gauge(length, Constants.BALL_CAPACITY,
+					       Constants.BALL_GAUGE_LENGTH / Constants.BALL_CAPACITY, Color.kOrange, Color.kBlack);
+		m_targetLock = LEDPattern.section(length, length - Constants.TARGET_LOCK_LENGTH,
+						  Constants.TARGET_LOCK_LENGTH, Color.kLime);
 
 		m_LED = new AddressableLED(Constants.ADDRESSABLE_LED_PORT);
-		m_LED.setLength(Constants.ADDRESSABLE_LED_LENGTH);
-		m_LEDBuffer = new AddressableLEDBuffer(Constants.ADDRESSABLE_LED_LENGTH);
-	}
-
-	public Color getLED(int index) {
-		return m_LEDBuffer.getLED(index);
-	}
-
-	public Color8Bit getLED8Bit(int index) {
-		return m_LEDBuffer.getLED8Bit(index);
+		m_LED.setLength(length);
+		m_animator = new LEDAnimator(m_LED, length, LAYERS, Constants.ADDRESSABLE_LED_PERIOD);
+		m_animator.setPattern(BASE_LAYER, m_white);
+		m_animator.start();
 	}
 
 	public int getLength() {
-		return m_LEDBuffer.getLength();
+		return m_animator.getLength();
 	}
 
-	public void setLED(int index, Color color) {
-		m_LEDBuffer.setLED(index, color);
+	// This method shows solid white, blinking at the blink rate (or not at all with 0.0).
+	public void setWhite(double blinkRate) {
+		setBase(m_white, blinkRate);
 	}
 
-	public void setLED(int index, Color8Bit color) {
-		m_LEDBuffer.setLED(index, color);
-	}
-
-	public void setLEDRGB(int index, int r, int g, int b) {
-		m_LEDBuffer.setRGB(index, r, g, b);
+	// This method shows a moving rainbow.
+	public void rainbowLED() {
+		setBase(m_rainbow, 0.0);
 	}
 
-	public void setLEDHSV(int index, int h, int s, int v) {
-		m_LEDBuffer.setHSV(index, h, s, v);
+	// This method shows the alliance color from the shared LED status. The strip blinks on its own
+	// thread, in the same phase as the status.
+	public void showStatus(LEDStatus status) {
+		var alliance = status.getAlliance();
+		if(alliance == DriverStation.Alliance.Red)
+			setBase(m_red, status.getBlinkRate());
+		else if(alliance == DriverStation.Alliance.Blue)
+			setBase(m_blue, status.getBlinkRate());
+		else if(alliance == DriverStation.Alliance.Invalid)
+			setBase(m_invalid, status.getBlinkRate());
+		else
+			setBase(m_unknown, status.getBlinkRate());
 	}
 
-	public void automaticLEDSetter() {
-		var blinkRate = 0.0;
-		if(Constants.DS.isDisabled()) blinkRate = Constants.DISABLED_BLINK_RATE;
-		else if(Constants.DS.isAutonomous()) blinkRate = Constants.AUTONOMOUS_BLINK_RATE;
-		else if(Constants.DS.isOperatorControl()) blinkRate = Constants.TELOP_BLINK_RATE;
-		else blinkRate = 0.0;
-
-		if(Constants.DS.getAlliance() == DriverStation.Alliance.Red) {
-			m_ledColor = Color.kFirstRed;
-		}
-		else if(Constants.DS.getAlliance() == DriverStation.Alliance.Blue) {
-			m_ledColor = Color.kFirstBlue;
-		}
-		else if(Constants.DS.getAlliance() == DriverStation.Alliance.Invalid) {
-			m_ledColor = Color.kKhaki;
-		}
-		else {
-			m_ledColor = Color.kDarkMagenta;
-		}
-
-		if (blinkRate < 0.03) {
-			for (var i = 0; i < this.getLength(); i++) {
-				this.setLED(i, m_ledColor);
-			}
-		}
-		else if (m_startTime == 0.0 && blinkRate >= 0.03) {
-			m_startTime = Timer.getFPGATimestamp();
-		}
-		else if(((Timer.getFPGATimestamp()) < (m_startTime + blinkRate)) && blinkRate >= 0.03) {
-			for (var j = 0; j < this.getLength(); j++) {
-				this.setLED(j, m_ledColor);
-			}
-		}
-		else if((Timer.getFPGATimestamp() < (m_startTime + (blinkRate * 2))) && blinkRate >= 0.03) {
-			for (var k = 0; k < this.getLength(); k++) {
-				this.setLED(k, Color.kBlack);
-			}
-		}
-		else
-			m_startTime = 0.0;
+	// This method shows how many balls the robot holds as a gauge over the start of the strip.
+	public void showBallCount(int count) {
+		m_animator.setPattern(BALL_LAYER, m_ballGauge, count);
 	}
 
-	public void rainbowLED() {
-		// For every pixel
-		for (var i = 0; i < this.getLength(); i++) {
-			// Calculate the hue - hue is easier for rainbows because the color
-			// shape is a circle so only one value needs to precess
-			final var hue = (m_rainbowFirstPixelHue + (i * 180 / m_LEDBuffer.getLength())) % 180;
-			// Set the value
-			this.setLEDHSV(i, hue, 255, 128);
-		}
-		// Increase by to make the rainbow "move"
-		m_rainbowFirstPixelHue += 3;
-		// Check bounds
-		m_rainbowFirstPixelHue %= 180;
+	// This method shows whether the robot is locked on to the target, over the end of the strip.
+	public void showTargetLock(boolean locked) {
+		m_animator.setPattern(TARGET_LAYER, locked ? m_targetLock : null);
 	}
 
-	public void StartLED() {
-		m_LED.setData(m_LEDBuffer);
-		m_LED.start();
+	// This method hides the ball count and the target lock.
+	public void clearOverlays() {
+		m_animator.clear(BALL_LAYER);
+		m_animator.clear(TARGET_LAYER);
 	}
 
-	public void StopLED() {
-		m_LED.stop();
+	private void setBase(LEDPattern pattern, double blinkRate) {
+		m_animator.setBlink(BASE_LAYER, blinkRate >= LEDStatus.MIN_BLINK_RATE ? blinkRate : 0.0);
+		m_animator.setPattern(BASE_LAYER, pattern);
 	}
 
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		LoopProfiler.getInstance().mark(m_profilerPhase);
 	}
 }
@@ -7,6 +7,8 @@
 
 package com.fireteam322.frc.robot.subsystems;
 
+import java.util.Map;
+
 import com.ctre.phoenix.motorcontrol.ControlMode;
 import com.ctre.phoenix.motorcontrol.DemandType;
 import com.ctre.phoenix.motorcontrol.FeedbackDevice;
@@ -15,11 +17,26 @@ import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
 import com.kauailabs.navx.frc.AHRS;
 
+import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.wpilibj.SpeedController;
 import edu.wpi.first.wpilibj.SpeedControllerGroup;
+import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.drive.DifferentialDrive;
+import edu.wpi.first.wpilibj.geometry.Pose2d;
+import edu.wpi.first.wpilibj.geometry.Rotation2d;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.utilities.ChassisHistory;
+import com.fireteam322.frc.robot.utilities.ControlLoop;
+import com.fireteam322.frc.robot.utilities.DifferentialOdometry;
+import com.fireteam322.frc.robot.utilities.DoubleMailbox;
+import com.fireteam322.frc.robot.utilities.LimelightTarget;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
+import com.fireteam322.frc.robot.utilities.MotorConfigCache;
+import com.fireteam322.frc.robot.utilities.TelemetryLogger;
+import com.fireteam322.frc.robot.utilities.TelemetryPublisher;
 import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
 
@@ -35,6 +52,12 @@ public class Chassis extends SubsystemBase implements Loggable {
 	private final WPI_TalonSRX m_rightFrontMotor = new WPI_TalonSRX(Constants.DRIVE_RIGHTFRONT);
 	private final WPI_TalonSRX m_rightRearMotor = new WPI_TalonSRX(Constants.DRIVE_RIGHTREAR);
 
+	// Only send configuration changes to the Talons when something actually changed.
+	private final MotorConfigCache m_leftFrontConfig = new MotorConfigCache(m_leftFrontMotor);
+	private final MotorConfigCache m_leftRearConfig = new MotorConfigCache(m_leftRearMotor);
+	private final MotorConfigCache m_rightFrontConfig = new MotorConfigCache(m_rightFrontMotor);
+	private final MotorConfigCache m_rightRearConfig = new MotorConfigCache(m_rightRearMotor);
+
 	private final SpeedController m_leftMotors = new SpeedControllerGroup(m_leftFrontMotor, m_leftRearMotor);
 	private final SpeedController m_rightMotors = new SpeedControllerGroup(m_rightFrontMotor, m_rightRearMotor);
 
@@ -52,11 +75,67 @@ public class Chassis extends SubsystemBase implements Loggable {
 		  columnIndex = 6, rowIndex = 0)
 	private final AHRS m_imu = new AHRS();
 
+	// Field pose from the encoders and navX. Only the control loop touches the odometry.
+	private final DifferentialOdometry m_odometry = new DifferentialOdometry();
+
+	// Heading, encoder and pose history for latency compensated vision.
+	private final ChassisHistory m_history = new ChassisHistory(Constants.CHASSIS_HISTORY_SIZE);
+
+	// Drive setpoints handed from the commands to the control loop, with the time they were written.
+	private static final int DRIVE_MODE = 0, DRIVE_SPEED = 1, DRIVE_ROTATION = 2, DRIVE_TIME = 3;
+	private static final double MODE_ARCADE = 0.0, MODE_MOTION_MAGIC = 1.0;
+	private final DoubleMailbox m_driveSetpoints = new DoubleMailbox(4);
+	private final double[] m_driveSetpointBuffer = new double[4];
+	private final double[] m_controlDriveSetpoints = new double[4];
+
+	// Pose handed from the control loop back to the scheduler, with the last pose reset applied.
+	private static final int POSE_X = 0, POSE_Y = 1, POSE_HEADING = 2, POSE_RESET = 3;
+	private final DoubleMailbox m_poseMailbox = new DoubleMailbox(4);
+	private final double[] m_controlPose = new double[4];
+	private final double[] m_poseBuffer = new double[4];
+	private final double[] m_pose = new double[3];
+
+	// Pose resets (x, y, heading) handed to the control loop.
+	private final DoubleMailbox m_poseResets = new DoubleMailbox(3);
+	private final double[] m_poseResetBuffer = new double[3];
+	private final double[] m_controlRequest = new double[3];
+	private long m_lastPoseReset = 0;
+
+	// When the navX was last reset; the odometry holds its heading until the new yaw settles.
+	private volatile double m_gyroResetTime = Double.NEGATIVE_INFINITY;
+
+	// The output limit from the power budget, applied by the control loop.
+	private volatile double m_outputLimit = 1.0;
+
+	// Telemetry channel for chassisLog().
+	private static final int LOG_LEFT_DISTANCE = 0, LOG_RIGHT_DISTANCE = 1,
+				 LOG_ANGLE = 2, LOG_RATE = 3, LOG_PITCH = 4, LOG_ROLL = 5, LOG_YAW = 6,
+				 LOG_ACCEL_X = 7, LOG_ACCEL_Y = 8, LOG_ACCEL_Z = 9,
+				 LOG_VELOCITY_X = 10, LOG_VELOCITY_Y = 11, LOG_VELOCITY_Z = 12,
+				 LOG_DISPLACEMENT_X = 13, LOG_DISPLACEMENT_Y = 14, LOG_DISPLACEMENT_Z = 15;
+	private final TelemetryLogger m_telemetry;
+	private final int m_telemetryChannel;
+	private final double[] m_logValues = new double[16];
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
+
+	private static final Map<String, Object> ENCODER_BAR = Map.of("Min", -32768.0, "Center", 0.0, "Max", 32767.0);
+
 	/**
 	 * Creates a new Chassis.
+	 *
+	 * @param controlLoop The fast control loop that runs the drive and the odometry
+	 * @param telemetry The telemetry logger for chassisLog()
 	 */
-	public Chassis() {
+	public Chassis(ControlLoop controlLoop, TelemetryLogger telemetry) {
 		super();
+		m_telemetry = telemetry;
+		m_telemetryChannel = m_telemetry.registerChannel("Chassis",
+								 "Left Distance", "Right Distance",
+								 "Angle", "Rate", "Pitch", "Roll", "Yaw",
+								 "X Acceleration", "Y Acceleration", "Z Acceleration",
+								 "X Velocity", "Y Velocity", "Z Velocity",
+								 "X Displacement", "Y Displacement", "Z Displacement");
+
 		// Invert all four motors due to the way they're mounted.
 		m_leftMotors.setInverted(false);
 		m_rightMotors.setInverted(false);
@@ -73,6 +152,43 @@ public class Chassis extends SubsystemBase implements Loggable {
 		m_leftFrontMotor.setSensorPhase(false);
 		m_rightFrontMotor.setSensorPhase(false);
 		System.out.println("Encoder Phasing Complete");
+
+		// Start at the field origin until someone tells us otherwise.
+		resetPose(0.0, 0.0, 0.0);
+
+		controlLoop.register(this::controlPeriodic);
+		addTelemetry();
+	}
+
+	// This method puts the drive telemetry on the dashboard, each value read once for every tab.
+	private void addTelemetry() {
+		var telemetry = TelemetryPublisher.getInstance();
+		telemetry.addDouble(this::leftDistanceIn, Constants.DRIVE_TELEMETRY_RATE,
+				    encoderBar("Driver", "Left Encoder", 1), encoderBar("Debugger", "Left Encoder", 1));
+		telemetry.addDouble(this::rightDistanceIn, Constants.DRIVE_TELEMETRY_RATE,
+				    encoderBar("Driver", "Right Encoder", 2), encoderBar("Debugger", "Right Encoder", 2));
+		telemetry.addDouble(this::getPoseX, Constants.DRIVE_TELEMETRY_RATE,
+				    number("Autonomous", "Pose X", 0, 1), number("Debugger", "Pose X", 10, 0));
+		telemetry.addDouble(this::getPoseY, Constants.DRIVE_TELEMETRY_RATE,
+				    number("Autonomous", "Pose Y", 1, 1), number("Debugger", "Pose Y", 10, 1));
+		telemetry.addDouble(this::getPoseHeading, Constants.DRIVE_TELEMETRY_RATE,
+				    number("Autonomous", "Pose Heading", 0, 2), number("Debugger", "Pose Heading", 10, 2));
+		telemetry.addBoolean(this::isHeadingReliable, Constants.HEADING_TELEMETRY_RATE,
+				     headingBox("Driver"), headingBox("Debugger"));
+	}
+
+	private static NetworkTableEntry encoderBar(String tab, String name, int row) {
+		return Shuffleboard.getTab(tab).add(name, 0.0).withWidget(BuiltInWidgets.kNumberBar)
+			.withProperties(ENCODER_BAR).withPosition(0, row).withSize(2, 1).getEntry();
+	}
+
+	private static NetworkTableEntry number(String tab, String name, int column, int row) {
+		return Shuffleboard.getTab(tab).add(name, 0.0).withPosition(column, row).getEntry();
+	}
+
+	private static NetworkTableEntry headingBox(String tab) {
+		return Shuffleboard.getTab(tab).add("Reliable Heading", false).withWidget(BuiltInWidgets.kBooleanBox)
+			.withPosition(2, 2).getEntry();
 	}
 
 	/**
@@ -82,7 +198,16 @@ public class Chassis extends SubsystemBase implements Loggable {
 	 * @param rotation Rotation in range [-1.0,1.0]
 	 */
 	public void drive(double speed, double rotation) {
-		m_drive.arcadeDrive(speed, rotation);
+		setDriveSetpoints(MODE_ARCADE, speed, rotation);
+	}
+
+	// Hands new setpoints to the control loop.
+	private void setDriveSetpoints(double mode, double speed, double rotation) {
+		m_driveSetpointBuffer[DRIVE_MODE] = mode;
+		m_driveSetpointBuffer[DRIVE_SPEED] = speed;
+		m_driveSetpointBuffer[DRIVE_ROTATION] = rotation;
+		m_driveSetpointBuffer[DRIVE_TIME] = Timer.getFPGATimestamp();
+		m_driveSetpoints.write(m_driveSetpointBuffer);
 	}
 
 	/**
@@ -93,48 +218,52 @@ public class Chassis extends SubsystemBase implements Loggable {
 	 */
 	public void autoDriveStraight(double heading, double distance) {
 		double ticks = distance * Constants.TICKS_PER_INCH;
+		// Keep the control loop from overwriting the Talons' MotionMagic output.
+		setDriveSetpoints(MODE_MOTION_MAGIC, 0.0, 0.0);
 		m_leftFrontMotor.set(ControlMode.MotionMagic, ticks, DemandType.AuxPID, heading);
 		m_leftRearMotor.follow(m_leftFrontMotor, FollowerType.AuxOutput1);
 		m_rightFrontMotor.follow(m_leftFrontMotor, FollowerType.AuxOutput1);
 		m_rightRearMotor.follow(m_leftFrontMotor, FollowerType.AuxOutput1);
 	}
 
+	// This method limits the drive's output (0.0 to 1.0), e.g. to stay out of brownout.
+	public void setOutputLimit(double limit) {
+		m_outputLimit = limit;
+	}
+
 	// This method sets the robot to brake when the throttle is idle.
 	public void brake(boolean brake) {
-		if(brake) {
-			m_leftFrontMotor.setNeutralMode(NeutralMode.Brake);
-			m_leftRearMotor.setNeutralMode(NeutralMode.Brake);
-			m_rightFrontMotor.setNeutralMode(NeutralMode.Brake);
-			m_rightRearMotor.setNeutralMode(NeutralMode.Brake);
-		}
-		else {
-			m_leftFrontMotor.setNeutralMode(NeutralMode.Coast);
-			m_leftRearMotor.setNeutralMode(NeutralMode.Coast);
-			m_rightFrontMotor.setNeutralMode(NeutralMode.Coast);
-			m_rightRearMotor.setNeutralMode(NeutralMode.Coast);
-		}
+		if(brake)
+			setNeutralMode(NeutralMode.Brake);
+		else
+			setNeutralMode(NeutralMode.Coast);
 	}
 
 	// This method sets the robot to coast when the throttle is idle.
 	public void coast(boolean coast) {
-		if (coast) {
-			m_leftFrontMotor.setNeutralMode(NeutralMode.Coast);
-			m_leftRearMotor.setNeutralMode(NeutralMode.Coast);
-			m_rightFrontMotor.setNeutralMode(NeutralMode.Coast);
-			m_rightRearMotor.setNeutralMode(NeutralMode.Coast);
+		if (coast)
+			setNeutralMode(NeutralMode.Coast);
+		else
+			setNeutralMode(NeutralMode.Brake);
+	}
 
-		}
-		else {
-			m_leftFrontMotor.setNeutralMode(NeutralMode.Brake);
-			m_leftRearMotor.setNeutralMode(NeutralMode.Brake);
-			m_rightFrontMotor.setNeutralMode(NeutralMode.Brake);
-			m_rightRearMotor.setNeutralMode(NeutralMode.Brake);
-		}
+	// This method sets the neutral mode of all four motors, only talking to the Talons on a change.
+	private void setNeutralMode(NeutralMode mode) {
+		m_leftFrontConfig.setNeutralMode(mode);
+		m_leftRearConfig.setNeutralMode(mode);
+		m_rightFrontConfig.setNeutralMode(mode);
+		m_rightRearConfig.setNeutralMode(mode);
+	}
+
+	// The number of motor configuration CAN frames that didn't have to be sent, robot wide.
+	@Log(name = "CAN Frames Saved", tabName = "Debugger", columnIndex = 10, rowIndex = 3)
+	public int getCANFramesSaved() {
+		return MotorConfigCache.getTotalFramesSaved();
 	}
 
 	// This stops the robot
 	public void stop() {
-		m_drive.arcadeDrive(0.0, 0.0);
+		setDriveSetpoints(MODE_ARCADE, 0.0, 0.0);
 		brake(true);
 	}
 
@@ -151,26 +280,75 @@ public class Chassis extends SubsystemBase implements Loggable {
 	}
 
 	// Encoder output from the left encoder in inches
-	@Log.NumberBar(name = "Left Encoder", min = -32768, center = 0,max = 32767,
-		       tabName = "Driver", width = 2, columnIndex = 0, rowIndex = 1)
-	@Log.NumberBar(name = "Left Encoder", min = -32768, center = 0,max = 32767,
-		       tabName = "Debugger", width = 2, columnIndex = 0, rowIndex = 1)
 	public double leftDistanceIn() {
 		return leftDistance() / Constants.TICKS_PER_INCH;
 	}
 
 	// Encoder output from the right encoder in inches
-	@Log.NumberBar(name = "Right Encoder", min = -32768, center = 0,max = 32767,
-		       tabName = "Driver", width = 2, columnIndex = 0, rowIndex = 2)
-	@Log.NumberBar(name = "Right Encoder", min = -32768, center = 0,max = 32767,
-		       tabName = "Debugger", width = 2, columnIndex = 0, rowIndex = 2)
 	public double rightDistanceIn() {
 		return rightDistance() / Constants.TICKS_PER_INCH;
 	}
 
+	// Encoder output from the left encoder in meters
+	private double leftDistanceMeters() {
+		return (double) leftDistance() / Constants.TICKS_PER_INCH * Constants.METERS_PER_INCH;
+	}
+
+	// Encoder output from the right encoder in meters
+	private double rightDistanceMeters() {
+		return (double) rightDistance() / Constants.TICKS_PER_INCH * Constants.METERS_PER_INCH;
+	}
+
+	// The navX angle converted to radians, counter-clockwise positive, for the odometry.
+	private double getOdometryAngle() {
+		return -Math.toRadians(getAngle());
+	}
+
+	// The following methods provide the field pose.
+
+	/**
+	 * Resets the field pose.
+	 *
+	 * @param x Field x in meters
+	 * @param y Field y in meters
+	 * @param heading Field heading in degrees, counter-clockwise positive
+	 */
+	public void resetPose(double x, double y, double heading) {
+		// The control loop owns the odometry, so it does the actual reset.
+		m_poseResetBuffer[POSE_X] = x;
+		m_poseResetBuffer[POSE_Y] = y;
+		m_poseResetBuffer[POSE_HEADING] = Math.toRadians(heading);
+		m_poseResets.write(m_poseResetBuffer);
+		// Show the new pose right away; periodic() ignores the old one until the reset is applied.
+		System.arraycopy(m_poseResetBuffer, 0, m_pose, 0, m_pose.length);
+	}
+
+	/**
+	 * Returns the field pose. This allocates, use the getPoseX/Y/Heading methods in
+	 * anything that runs every loop.
+	 *
+	 * @return The current field pose
+	 */
+	public Pose2d getPose() {
+		return new Pose2d(m_pose[POSE_X], m_pose[POSE_Y], new Rotation2d(m_pose[POSE_HEADING]));
+	}
+
+	// Field x in meters
+	public double getPoseX() {
+		return m_pose[POSE_X];
+	}
+
+	// Field y in meters
+	public double getPoseY() {
+		return m_pose[POSE_Y];
+	}
+
+	// Field heading in degrees, counter-clockwise positive
+	public double getPoseHeading() {
+		return Math.toDegrees(m_pose[POSE_HEADING]);
+	}
+
 	// This method checks for magnetic heading reliability.
-	@Log.BooleanBox(name = "Reliable Heading", tabName = "Driver", columnIndex = 2, rowIndex = 2)
-	@Log.BooleanBox(name = "Reliable Heading", tabName = "Debugger", columnIndex = 2, rowIndex = 2)
 	public boolean isHeadingReliable() {
 		if (m_imu.isMagnetometerCalibrated() && !(m_imu.isMagneticDisturbance()))
 			return true;
@@ -467,6 +645,7 @@ public class Chassis extends SubsystemBase implements Loggable {
 	 */
 	public void reset() {
 		m_imu.reset();
+		m_gyroResetTime = Timer.getFPGATimestamp();
 	}
 
 	/**
@@ -483,77 +662,174 @@ public class Chassis extends SubsystemBase implements Loggable {
 	 */
 	public void zeroYaw() {
 		m_imu.zeroYaw();
+		m_gyroResetTime = Timer.getFPGATimestamp();
+	}
+
+	// The following methods provide latency compensated state for vision consumers.
+
+	/**
+	 * Returns the accumulated yaw angle (see {@link #getAngle()}) at a past time.
+	 *
+	 * @param timestamp FPGA timestamp in seconds
+	 * @return The interpolated angle in degrees, or the current angle if there's no history yet
+	 */
+	public double getAngleAt(double timestamp) {
+		var angle = m_history.getHeadingAt(timestamp);
+		if (Double.isNaN(angle))
+			return getAngle();
+		return angle;
+	}
+
+	/**
+	 * Returns the left encoder distance (in inches) at a past time.
+	 *
+	 * @param timestamp FPGA timestamp in seconds
+	 * @return The interpolated distance, or the current distance if there's no history yet
+	 */
+	public double leftDistanceInAt(double timestamp) {
+		var distance = m_history.getLeftDistanceAt(timestamp);
+		if (Double.isNaN(distance))
+			return leftDistanceIn();
+		return distance;
+	}
+
+	/**
+	 * Returns the right encoder distance (in inches) at a past time.
+	 *
+	 * @param timestamp FPGA timestamp in seconds
+	 * @return The interpolated distance, or the current distance if there's no history yet
+	 */
+	public double rightDistanceInAt(double timestamp) {
+		var distance = m_history.getRightDistanceAt(timestamp);
+		if (Double.isNaN(distance))
+			return rightDistanceIn();
+		return distance;
+	}
+
+	/**
+	 * Returns the angle (in the same frame as {@link #getAngle()}) the robot has to face to point
+	 * at a vision target. The Limelight's tx is measured relative to where the robot was pointing
+	 * when the frame was captured, not where it's pointing now.
+	 *
+	 * @param target The Limelight snapshot
+	 * @return The angle to the target in degrees
+	 */
+	public double getTargetAngle(LimelightTarget target) {
+		return getAngleAt(target.getCaptureTimestamp()) + target.getTX();
+	}
+
+	/**
+	 * Returns how far (in degrees) the robot still has to turn to point at a vision target,
+	 * compensating for the latency of the vision measurement.
+	 *
+	 * @param target The Limelight snapshot
+	 * @return The heading error in degrees, positive is clockwise
+	 */
+	public double getTargetAngleError(LimelightTarget target) {
+		return getTargetAngle(target) - getAngle();
+	}
+
+	// Whether the robot points at a vision target within the aim tolerance, compensating for latency.
+	public boolean isAimedAt(LimelightTarget target) {
+		return target.isValid() && Math.abs(getTargetAngleError(target)) <= Constants.VISION_AIM_TOLERANCE;
 	}
 
 	// The following methods are for logging the sensor outputs.
 
 	private void logEncoders() {
-		System.out.println(leftDistanceIn());
-		System.out.println(rightDistanceIn());
+		m_logValues[LOG_LEFT_DISTANCE] = leftDistanceIn();
+		m_logValues[LOG_RIGHT_DISTANCE] = rightDistanceIn();
 	}
 
 	private void logGyro() {
-		System.out.println("Angle: " + getAngle());
-		System.out.println("Rate: " + getRate());
-		System.out.println();
-		System.out.println("Pitch: " + getPitch());
-		System.out.println("Roll: " + getRoll());
-		System.out.println("Yaw: " + getYaw());
+		m_logValues[LOG_ANGLE] = getAngle();
+		m_logValues[LOG_RATE] = getRate();
+		m_logValues[LOG_PITCH] = getPitch();
+		m_logValues[LOG_ROLL] = getRoll();
+		m_logValues[LOG_YAW] = getYaw();
 	}
 
 	private void logAccel() {
-		System.out.println("X Acceleration: " + getWorldLinearAccelX());
-		System.out.println("Y Acceleration: " + getWorldLinearAccelY());
-		System.out.println("Z Acceleration: " + getWorldLinearAccelZ());
+		m_logValues[LOG_ACCEL_X] = getWorldLinearAccelX();
+		m_logValues[LOG_ACCEL_Y] = getWorldLinearAccelY();
+		m_logValues[LOG_ACCEL_Z] = getWorldLinearAccelZ();
 	}
 
 	private void logVelocity() {
-		System.out.println("X Velocity: " + getVelocityX());
-		System.out.println("Y Velocity: " + getVelocityY());
-		System.out.println("Z Velocity: " + getVelocityZ());
+		m_logValues[LOG_VELOCITY_X] = getVelocityX();
+		m_logValues[LOG_VELOCITY_Y] = getVelocityY();
+		m_logValues[LOG_VELOCITY_Z] = getVelocityZ();
 	}
 
 	private void logDisplacement() {
-		System.out.println("X Displacement: " + getDisplacementX());
-		System.out.println("Y Displacement: " + getDisplacementY());
-		System.out.println("Z Displacement: " + getDisplacementZ());
+		m_logValues[LOG_DISPLACEMENT_X] = getDisplacementX();
+		m_logValues[LOG_DISPLACEMENT_Y] = getDisplacementY();
+		m_logValues[LOG_DISPLACEMENT_Z] = getDisplacementZ();
 	}
 
+	// This method records the sensor outputs to the telemetry log (while the log button is held).
 	public void chassisLog(boolean logging) {
 		if(logging) {
-			// Output the current encoder positions (in inches).
-			System.out.println("Encoder Outputs");
+			// Encoder positions (in inches).
 			logEncoders();
-			System.out.println();
-			// Output various IMU data
 
-			// Gyro outputs
-			System.out.println("Gyro Outputs");
+			// Various IMU data
 			logGyro();
-			System.out.println();
-
-			// Accelerometer outputs
-			System.out.println("Accelerometer Outputs");
 			logAccel();
-			System.out.println();
-
-			// Velocity Outputs
-			System.out.println("Velocity Outputs");
 			logVelocity();
-			System.out.println();
-
-			// Displacement Outputs
-			System.out.println("Displacement Outputs");
 			logDisplacement();
-			System.out.println();
 
-			// Add a gap between sets
-			System.out.println();
+			m_telemetry.log(m_telemetryChannel, m_logValues);
 		}
 	}
 
+	// This method is called by the control loop, on the control loop's thread.
+	private void controlPeriodic() {
+		// Apply pose resets first so they aren't mixed with the motion since the last update.
+		if (m_poseResets.getSequence() != m_lastPoseReset) {
+			m_lastPoseReset = m_poseResets.read(m_controlRequest);
+			m_odometry.reset(m_controlRequest[POSE_X], m_controlRequest[POSE_Y], m_controlRequest[POSE_HEADING],
+					 getOdometryAngle(), leftDistanceMeters(), rightDistanceMeters());
+			m_history.clear();
+		}
+
+		// The navX applies a yaw reset a few updates later, so keep the field heading (and forget
+		// the history, which mixes the old and new yaw) until it has settled.
+		var now = Timer.getFPGATimestamp();
+		if (now - m_gyroResetTime < Constants.GYRO_RESET_SETTLE_TIME) {
+			m_odometry.rebaseGyro(getOdometryAngle());
+			m_history.clear();
+		}
+
+		m_odometry.update(getOdometryAngle(), leftDistanceMeters(), rightDistanceMeters());
+		m_history.record(now, getAngle(), leftDistanceIn(), rightDistanceIn(),
+				 m_odometry.getX(), m_odometry.getY());
+
+		m_controlPose[POSE_X] = m_odometry.getX();
+		m_controlPose[POSE_Y] = m_odometry.getY();
+		m_controlPose[POSE_HEADING] = m_odometry.getHeading();
+		m_controlPose[POSE_RESET] = m_lastPoseReset;
+		m_poseMailbox.write(m_controlPose);
+
+		m_driveSetpoints.read(m_controlDriveSetpoints);
+		m_drive.setMaxOutput(m_outputLimit);
+		if (now - m_controlDriveSetpoints[DRIVE_TIME] > Constants.SETPOINT_TIMEOUT)
+			// Nothing has commanded the drive lately (a stalled or finished command), so stop.
+			m_drive.stopMotor();
+		else if (m_controlDriveSetpoints[DRIVE_MODE] == MODE_ARCADE)
+			m_drive.arcadeDrive(m_controlDriveSetpoints[DRIVE_SPEED], m_controlDriveSetpoints[DRIVE_ROTATION]);
+		else
+			// The Talons are running on their own, just keep the motor safety happy.
+			m_drive.feed();
+	}
+
 	@Override
 	// This method will be called once per scheduler run
 	public void periodic() {
+		// Pick up the latest pose from the control loop, once it has applied the last reset.
+		m_poseMailbox.read(m_poseBuffer);
+		if (m_poseBuffer[POSE_RESET] == m_poseResets.getSequence())
+			System.arraycopy(m_poseBuffer, 0, m_pose, 0, m_pose.length);
+		LoopProfiler.getInstance().mark(m_profilerPhase);
 	}
 }
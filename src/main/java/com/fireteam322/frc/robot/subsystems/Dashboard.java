@@ -7,24 +7,46 @@
 
 package com.fireteam322.frc.robot.subsystems;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
 import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj.shuffleboard.ShuffleboardTab;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.utilities.DashboardPublisher;
+import com.fireteam322.frc.robot.utilities.DriverStationMonitor;
+import com.fireteam322.frc.robot.utilities.DriverStationState;
+import com.fireteam322.frc.robot.utilities.EnumValueMap;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
 
 public class Dashboard extends SubsystemBase {
 	private ShuffleboardTab driverShuffleboardTab;
 	private ShuffleboardTab autonomousShuffleboardTab;
 	private ShuffleboardTab debuggerShuffleboardTab;
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
+
+	// Everything the Dashboard shows goes through the publisher, so only changes are sent.
+	private final DashboardPublisher m_publisher = new DashboardPublisher();
+	private final int m_matchTime;
+	private Tab m_selectedTab = null;
 	/**
-	 * Creates a new Dashboard.
+	 * Creates a new Dashboard. The tab for the robot mode is selected when the mode changes, not
+	 * every loop.
 	 */
 	public Dashboard() {
 		driverShuffleboardTab = Shuffleboard.getTab("Driver");
 		autonomousShuffleboardTab = Shuffleboard.getTab("Autonomous");
 		debuggerShuffleboardTab = Shuffleboard.getTab("Debugger");
+
+		m_matchTime = m_publisher.addDouble(driverShuffleboardTab.add("Match Time", 0.0)
+								    .withWidget(BuiltInWidgets.kTextView)
+								    .withPosition(0, 0).withSize(2, 1).getEntry(),
+						    Constants.DASHBOARD_PUBLISH_PERIOD);
+
+		setTab(getTabFor(DriverStationMonitor.getInstance().getState()));
+		DriverStationMonitor.getInstance().addListener((previous, current) -> {
+			if (previous.getMode() != current.getMode())
+				setTab(getTabFor(current));
+		});
 	}
 
 	public enum Tab {
@@ -32,13 +54,7 @@ public class Dashboard extends SubsystemBase {
 		kAutonomous(1),
 		kDebugger(2);
 
-		private static final Map<Integer, Tab> MY_MAP = new HashMap<Integer, Tab>();
-
-		static {
-			for (Tab tab : values()) {
-				MY_MAP.put(tab.getValue(), tab);
-			}
-		}
+		private static final EnumValueMap<Tab> MY_MAP = new EnumValueMap<>(values(), Tab::getValue);
 
 		private int value;
 
@@ -59,7 +75,21 @@ public class Dashboard extends SubsystemBase {
 		}
 	}
 
+	// The tab shown in a robot mode.
+	public static Tab getTabFor(DriverStationState state) {
+		if (state.isAutonomous())
+			return Tab.kAutonomous;
+		else if (state.isOperatorControl())
+			return Tab.kDriver;
+		else
+			return Tab.kDebugger;
+	}
+
+	// This method selects a tab, only sending the command if it isn't the tab already selected.
 	public void setTab(Tab tab) {
+		if (tab == m_selectedTab)
+			return;
+		m_selectedTab = tab;
 		if (tab == Tab.kDriver)
 			Shuffleboard.selectTab("Driver");
 		else if (tab == Tab.kAutonomous)
@@ -80,8 +110,21 @@ public class Dashboard extends SubsystemBase {
 		return debuggerShuffleboardTab;
 	}
 
+	// The publisher for the Dashboard's outputs, for anything else that wants change-only publishing.
+	public DashboardPublisher getPublisher() {
+		return m_publisher;
+	}
+
+	// This method updates the outputs from the loop's Driver Station state and sends the ones that changed.
+	public void update(DriverStationState state, double now) {
+		// Whole seconds, so the match time is only sent once a second.
+		m_publisher.setDouble(m_matchTime, Math.max(0.0, Math.ceil(state.getMatchTime())));
+		m_publisher.publish(now);
+	}
+
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		LoopProfiler.getInstance().mark(m_profilerPhase);
 	}
 }
@@ -8,14 +8,23 @@
 package com.fireteam322.frc.robot.subsystems;
 
 import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
+import com.fireteam322.frc.robot.utilities.MotorConfigCache;
 
 public class Feeder extends SubsystemBase {
 	// The Feeder moves balls from the intake to the shooter.
 	private final WPI_TalonSRX m_feederMotor = new WPI_TalonSRX(Constants.FEEDER_MOTOR);
+	private final MotorConfigCache m_feederConfig = new MotorConfigCache(m_feederMotor);
+	// The output limit from the power budget.
+	private volatile double m_outputLimit = 1.0;
+	// The last commanded speed, for the ball counter.
+	private volatile double m_speed = 0.0;
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
 	/**
 	 * Creates a new Feeder.
 	 */
@@ -23,24 +32,45 @@ public class Feeder extends SubsystemBase {
 		super();
 
 		// Set the inversion of the feeder motor.
-		m_feederMotor.setInverted(true);
+		m_feederConfig.setInverted(true);
+
+		// Send the current measurement faster, so the ball counter sees short spikes.
+		m_feederMotor.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, Constants.BALL_SENSE_STATUS_PERIOD);
 
 		// Set the feeder motor to Brake mode to keep balls from moving when we don't want them to.
-		m_feederMotor.setNeutralMode(NeutralMode.Brake);
+		m_feederConfig.setNeutralMode(NeutralMode.Brake);
 	}
 
 	// This method stops the feeder.
 	public void stop() {
+		m_speed = 0.0;
 		m_feederMotor.stopMotor();
 	}
 
 	// This method runs the feeder.
 	public void run(double speed) {
-		m_feederMotor.set(speed);
+		m_speed = speed;
+		m_feederMotor.set(speed * m_outputLimit);
+	}
+
+	// This method limits the feeder's output (0.0 to 1.0), e.g. to stay out of brownout.
+	public void setOutputLimit(double limit) {
+		m_outputLimit = limit;
+	}
+
+	// The last commanded speed.
+	public double getSpeed() {
+		return m_speed;
+	}
+
+	// The feeder motor's output current in amps.
+	public double getCurrent() {
+		return m_feederMotor.getStatorCurrent();
 	}
 
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		LoopProfiler.getInstance().mark(m_profilerPhase);
 	}
 }
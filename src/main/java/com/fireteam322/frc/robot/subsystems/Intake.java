@@ -8,14 +8,23 @@
 package com.fireteam322.frc.robot.subsystems;
 
 import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.StatusFrameEnhanced;
 import com.ctre.phoenix.motorcontrol.can.WPI_TalonSRX;
 
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
+import com.fireteam322.frc.robot.utilities.MotorConfigCache;
 
 public class Intake extends SubsystemBase {
 	// The Intake is our ground level ball intake.
 	private final WPI_TalonSRX m_intakeMotor = new WPI_TalonSRX(Constants.INTAKE_MOTOR);
+	private final MotorConfigCache m_intakeConfig = new MotorConfigCache(m_intakeMotor);
+	// The output limit from the power budget.
+	private volatile double m_outputLimit = 1.0;
+	// The last commanded speed, for the ball counter.
+	private volatile double m_speed = 0.0;
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
 	/**
 	 * Creates a new Intake.
 	 */
@@ -23,24 +32,45 @@ public class Intake extends SubsystemBase {
 		super();
 
 		// Set the inversion of the intake motor.
-		m_intakeMotor.setInverted(false);
+		m_intakeConfig.setInverted(false);
+
+		// Send the current measurement faster, so the ball counter sees short spikes.
+		m_intakeMotor.setStatusFramePeriod(StatusFrameEnhanced.Status_2_Feedback0, Constants.BALL_SENSE_STATUS_PERIOD);
 
 		// Set the intake motor to Coast.
-		m_intakeMotor.setNeutralMode(NeutralMode.Coast);
+		m_intakeConfig.setNeutralMode(NeutralMode.Coast);
 	}
 
 	// This method stops the intake.
 	public void stop() {
+		m_speed = 0.0;
 		m_intakeMotor.stopMotor();
 	}
 
 	// This method runs the intake.
 	public void run(double speed) {
-		m_intakeMotor.set(speed);
+		m_speed = speed;
+		m_intakeMotor.set(speed * m_outputLimit);
+	}
+
+	// This method limits the intake's output (0.0 to 1.0), e.g. to stay out of brownout.
+	public void setOutputLimit(double limit) {
+		m_outputLimit = limit;
+	}
+
+	// The last commanded speed.
+	public double getSpeed() {
+		return m_speed;
+	}
+
+	// The intake motor's output current in amps.
+	public double getCurrent() {
+		return m_intakeMotor.getStatorCurrent();
 	}
 
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		LoopProfiler.getInstance().mark(m_profilerPhase);
 	}
 }
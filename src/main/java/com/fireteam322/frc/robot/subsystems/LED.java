@@ -14,91 +14,79 @@ import edu.wpi.first.wpilibj.DriverStation;
 import edu.wpi.first.wpilibj.Timer;
 import edu.wpi.first.wpilibj.util.Color;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
-import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.utilities.LEDStatus;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
 
 public class LED extends SubsystemBase {
 	private final CANifier m_ledControlCANifier;
-	private double m_startTime;
+	// The outputs last sent to the CANifier, so unchanged channels aren't sent again.
+	private double m_red = Double.NaN, m_green = Double.NaN, m_blue = Double.NaN;
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
 	/**
 	 * Creates a new LED.
 	 */
 	public LED() {
 		super();
 		m_ledControlCANifier = new CANifier(0);
-		m_startTime = 0.0;
 	}
 
 	public void setRGB(double redIntensity, double greenIntensity, double blueIntensity, double blinkRate) {
-		if(blinkRate <= 0.1) {
-			m_ledControlCANifier.setLEDOutput(redIntensity, LEDChannel.LEDChannelA);
-			m_ledControlCANifier.setLEDOutput(greenIntensity, LEDChannel.LEDChannelB);
-			m_ledControlCANifier.setLEDOutput(blueIntensity, LEDChannel.LEDChannelC);
-		}
-		else if(m_startTime == 0.0 && blinkRate > 0.1)
-			m_startTime = Timer.getFPGATimestamp();
-		else if(((Timer.getFPGATimestamp()) < (m_startTime + blinkRate)) && blinkRate > 0.1) {
-			m_ledControlCANifier.setLEDOutput(redIntensity, LEDChannel.LEDChannelA);
-			m_ledControlCANifier.setLEDOutput(greenIntensity, LEDChannel.LEDChannelB);
-			m_ledControlCANifier.setLEDOutput(blueIntensity, LEDChannel.LEDChannelC);
-		}
-		else if((Timer.getFPGATimestamp() < (m_startTime + (blinkRate * 2))) && blinkRate > 0.1) {
-			m_ledControlCANifier.setLEDOutput(0.0, LEDChannel.LEDChannelA);
-			m_ledControlCANifier.setLEDOutput(0.0, LEDChannel.LEDChannelB);
-			m_ledControlCANifier.setLEDOutput(0.0, LEDChannel.LEDChannelC);
-		}
+		if (LEDStatus.isLit(Timer.getFPGATimestamp(), blinkRate))
+			setOutputs(redIntensity, greenIntensity, blueIntensity);
 		else
-			m_startTime = 0.0;
+			setOutputs(0.0, 0.0, 0.0);
 	}
 
 	public void setRGB(Color color, double blinkRate) {
-		if(blinkRate <= 0.1) {
-			m_ledControlCANifier.setLEDOutput(color.red, LEDChannel.LEDChannelA);
-			m_ledControlCANifier.setLEDOutput(color.green, LEDChannel.LEDChannelB);
-			m_ledControlCANifier.setLEDOutput(color.blue, LEDChannel.LEDChannelC);
-		}
-		else if(m_startTime == 0.0 && blinkRate > 0.1)
-			m_startTime = Timer.getFPGATimestamp();
-		else if(((Timer.getFPGATimestamp()) < (m_startTime + blinkRate)) && blinkRate > 0.1) {
-			m_ledControlCANifier.setLEDOutput(color.red, LEDChannel.LEDChannelA);
-			m_ledControlCANifier.setLEDOutput(color.green, LEDChannel.LEDChannelB);
-			m_ledControlCANifier.setLEDOutput(color.blue, LEDChannel.LEDChannelC);
-		}
-		else if((Timer.getFPGATimestamp() < (m_startTime + (blinkRate * 2))) && blinkRate > 0.1) {
-			m_ledControlCANifier.setLEDOutput(Color.kBlack.red, LEDChannel.LEDChannelA);
-			m_ledControlCANifier.setLEDOutput(Color.kBlack.green, LEDChannel.LEDChannelB);
-			m_ledControlCANifier.setLEDOutput(Color.kBlack.blue, LEDChannel.LEDChannelC);
-		}
-		else
-			m_startTime = 0.0;
+		setRGB(color.red, color.green, color.blue, blinkRate);
 	}
 
-	public void automaticLEDSetter() {
-		var blinkRate = 0.0;
-		var color = Color.kBlack;
-		if(Constants.DS.isDisabled()) blinkRate = Constants.DISABLED_BLINK_RATE;
-		else if(Constants.DS.isAutonomous()) blinkRate = Constants.AUTONOMOUS_BLINK_RATE;
-		else if(Constants.DS.isOperatorControl()) blinkRate = Constants.TELOP_BLINK_RATE;
-		else blinkRate = 0.0;
+	// This method shows the alliance color from the shared LED status.
+	public void showStatus(LEDStatus status) {
+		if (!status.isLit()) {
+			setOutputs(0.0, 0.0, 0.0);
+			return;
+		}
 
-		if(Constants.DS.getAlliance() == DriverStation.Alliance.Red) {
+		Color color;
+		if(status.getAlliance() == DriverStation.Alliance.Red) {
 			//color = Color.kFirstRed;
 			color = Color.kRed;
 		}
-		else if(Constants.DS.getAlliance() == DriverStation.Alliance.Blue) {
+		else if(status.getAlliance() == DriverStation.Alliance.Blue) {
 			color = Color.kFirstBlue;
 		}
-		else if(Constants.DS.getAlliance() == DriverStation.Alliance.Invalid) {
+		else if(status.getAlliance() == DriverStation.Alliance.Invalid) {
 			color = Color.kKhaki;
 		}
 		else {
 			color = Color.kDarkMagenta;
 		}
+		setOutputs(color.red, color.green, color.blue);
+	}
 
-		setRGB(color, blinkRate);
+	// This method sends only the channels that changed.
+	private void setOutputs(double red, double green, double blue) {
+		if (red != m_red) {
+			m_red = red;
+			m_ledControlCANifier.setLEDOutput(red, LEDChannel.LEDChannelA);
+		}
+		if (green != m_green) {
+			m_green = green;
+			m_ledControlCANifier.setLEDOutput(green, LEDChannel.LEDChannelB);
+		}
+		if (blue != m_blue) {
+			m_blue = blue;
+			m_ledControlCANifier.setLEDOutput(blue, LEDChannel.LEDChannelC);
+		}
 	}
 
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		// A CANifier that reset has lost its outputs, so send them all again.
+		if (m_ledControlCANifier.hasResetOccurred())
+			m_red = m_green = m_blue = Double.NaN;
+		LoopProfiler.getInstance().mark(m_profilerPhase);
 	}
 }
@@ -7,12 +7,23 @@
 
 package com.fireteam322.frc.robot.subsystems;
 
+import java.util.Map;
+
 import edu.wpi.cscore.HttpCamera;
 import edu.wpi.cscore.HttpCamera.HttpCameraKind;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.BuiltInWidgets;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import com.fireteam322.frc.robot.Constants;
 import com.fireteam322.frc.robot.utilities.Limelight;
 import com.fireteam322.frc.robot.utilities.Limelight.CameraMode;
 import com.fireteam322.frc.robot.utilities.Limelight.LightMode;
+import com.fireteam322.frc.robot.utilities.LimelightTarget;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
+import com.fireteam322.frc.robot.utilities.TelemetryLogger;
+import com.fireteam322.frc.robot.utilities.TelemetryPublisher;
 import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
 
@@ -23,12 +34,23 @@ public class LimelightCamera extends SubsystemBase implements Loggable {
 	private final Limelight m_limelight;
 	private final HttpCamera m_limelightFeed;
 
+	// Telemetry channel for the Limelight snapshots, logged once per frame.
+	private final TelemetryLogger m_telemetry;
+	private final int m_telemetryChannel;
+	private final double[] m_telemetryValues = new double[LimelightTarget.TELEMETRY_SIZE];
+	private LimelightTarget m_loggedTarget = LimelightTarget.EMPTY;
+
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
 	/**
 	 * Creates a new Limelight.
+	 *
+	 * @param telemetry The telemetry logger for the Limelight snapshots
 	 */
-	public LimelightCamera() {
+	public LimelightCamera(TelemetryLogger telemetry) {
 		super();
 		m_limelight = new Limelight();
+		m_telemetry = telemetry;
+		m_telemetryChannel = m_telemetry.registerChannel("Limelight", LimelightTarget.getTelemetryFields());
 
 		// Set the camera to Driver Mode
 		m_limelight.setCameraMode(CameraMode.kdriver);
@@ -39,6 +61,26 @@ public class LimelightCamera extends SubsystemBase implements Loggable {
 		// Activate an HttpCamera for the Limelight
 		m_limelightFeed = new HttpCamera("Limelight Camera", "http://10.3.22.11:5800/stream.mjpg", HttpCameraKind.kMJPGStreamer);
 		//CameraServer.getInstance().startAutomaticCapture(m_limelightFeed);
+
+		// Show the target on every tab, each value read once for all three.
+		var telemetry = TelemetryPublisher.getInstance();
+		telemetry.addDouble(m_limelight::getTX, Constants.LIMELIGHT_TELEMETRY_RATE,
+				    dials("Limelight TX", -30.0, 30.0, 3));
+		telemetry.addDouble(m_limelight::getTY, Constants.LIMELIGHT_TELEMETRY_RATE,
+				    dials("Limelight TY", -21.0, 21.0, 4));
+		telemetry.addDouble(m_limelight::getTA, Constants.LIMELIGHT_TELEMETRY_RATE,
+				    dials("Limelight TA", 0.0, 100.0, 5));
+	}
+
+	// This method adds a dial to the Autonomous, Driver and Debugger tabs, in the first column.
+	private static NetworkTableEntry[] dials(String name, double min, double max, int row) {
+		var tabs = new String[] {"Autonomous", "Driver", "Debugger"};
+		var entries = new NetworkTableEntry[tabs.length];
+		for (var i = 0; i < tabs.length; i++) {
+			entries[i] = Shuffleboard.getTab(tabs[i]).add(name, 0.0).withWidget(BuiltInWidgets.kDial)
+				.withProperties(Map.of("Min", min, "Max", max)).withPosition(0, row).getEntry();
+		}
+		return entries;
 	}
 
 	/**
@@ -49,36 +91,6 @@ public class LimelightCamera extends SubsystemBase implements Loggable {
 		return m_limelight;
 	}
 
-	@Log.Dial(min = -30.0, max = 30.0, name = "Limelight TX", tabName = "Autonomous",
-		  columnIndex = 0, rowIndex = 3)
-	@Log.Dial(min = -30.0, max = 30.0, name = "Limelight TX", tabName = "Driver",
-		  columnIndex = 0, rowIndex = 3)
-	@Log.Dial(min = -30.0, max = 30.0, name = "Limelight TX", tabName = "Debugger",
-		  columnIndex = 0, rowIndex = 3)
-	private double getTX() {
-		return m_limelight.getTX();
-	}
-
-	@Log.Dial(min = -21.0, max = 21.0, name = "Limelight TY", tabName = "Autonomous",
-		  columnIndex = 0, rowIndex = 4)
-	@Log.Dial(min = -21.0, max = 21.0, name = "Limelight TY", tabName = "Driver",
-		  columnIndex = 0, rowIndex = 4)
-	@Log.Dial(min = -21.0, max = 21.0, name = "Limelight TY", tabName = "Debugger",
-		  columnIndex = 0, rowIndex = 4)
-	private double getTY() {
-		return m_limelight.getTY();
-	}
-
-	@Log.Dial(min = 0.0, max = 100.0, name = "Limelight TA", tabName = "Autonomous",
-		  columnIndex = 0, rowIndex = 5)
-	@Log.Dial(min = 0.0, max = 100.0, name = "Limelight TA", tabName = "Driver",
-		  columnIndex = 0, rowIndex = 5)
-	@Log.Dial(min = 0.0, max = 100.0, name = "Limelight TA", tabName = "Debugger",
-		  columnIndex = 0, rowIndex = 5)
-	private double getTA() {
-		return m_limelight.getTA();
-	}
-
 	/**
 	 * This method returns the Limelight HttpCamera feed.
 	 * @return Returns an HttpCamera feed.
@@ -96,5 +108,17 @@ public class LimelightCamera extends SubsystemBase implements Loggable {
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		logTarget();
+		LoopProfiler.getInstance().mark(m_profilerPhase);
+	}
+
+	// This method logs the Limelight snapshot whenever a new frame has arrived.
+	private void logTarget() {
+		var target = m_limelight.getTarget();
+		if (target == m_loggedTarget)
+			return;
+		m_loggedTarget = target;
+		target.toTelemetry(m_telemetryValues, Timer.getFPGATimestamp());
+		m_telemetry.log(m_telemetryChannel, m_telemetryValues);
 	}
 }
@@ -10,11 +10,13 @@ package com.fireteam322.frc.robot.subsystems;
 import edu.wpi.cscore.UsbCamera;
 import edu.wpi.first.cameraserver.CameraServer;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
 import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
 
 public class RearCamera extends SubsystemBase implements Loggable {
 	private static UsbCamera rearCameraServer;
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
 	/**
 	 * Creates a new RearCamera.
 	 */
@@ -49,5 +51,6 @@ public class RearCamera extends SubsystemBase implements Loggable {
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		LoopProfiler.getInstance().mark(m_profilerPhase);
 	}
 }
@@ -7,9 +7,23 @@
 
 package com.fireteam322.frc.robot.subsystems;
 
+import java.util.Arrays;
+import java.util.function.DoubleConsumer;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableInstance;
 import edu.wpi.first.wpilibj.PowerDistributionPanel;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.shuffleboard.Shuffleboard;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.utilities.CurrentBudget;
+import com.fireteam322.frc.robot.utilities.DashboardPublisher;
+import com.fireteam322.frc.robot.utilities.EnergyMeter;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
+import com.fireteam322.frc.robot.utilities.PDPSampler;
+import com.fireteam322.frc.robot.utilities.TelemetryLogger;
+import com.fireteam322.frc.robot.utilities.TelemetryPublisher;
 import io.github.oblarg.oblog.Loggable;
 import io.github.oblarg.oblog.annotations.Log;
 
@@ -18,31 +32,187 @@ public class RobotPower extends SubsystemBase implements Loggable {
 	 * Creates a new RobotPower.
 	 */
 	private final PowerDistributionPanel m_pdp = new PowerDistributionPanel(Constants.PDP_CHANNEL);
-	public RobotPower() {
+	// The PDP is only read by the sampler's thread; everything else reads the sampler.
+	private final PDPSampler m_sampler = new PDPSampler(m_pdp, Constants.PDP_SAMPLE_PERIOD, Constants.PDP_HISTORY_SIZE);
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
+
+	// The brownout-aware budget, and the mechanisms it limits.
+	private final CurrentBudget m_budget = new CurrentBudget(Constants.BROWNOUT_WARNING_VOLTAGE,
+								  Constants.BROWNOUT_CRITICAL_VOLTAGE,
+								  Constants.BROWNOUT_PREDICTION_TIME,
+								  Constants.POWER_TREND_SAMPLES,
+								  Constants.POWER_LIMIT_RECOVERY_RATE,
+								  Constants.POWER_ACTIVE_CURRENT);
+	private DoubleConsumer[] m_limitSetters = new DoubleConsumer[0];
+	private int[][] m_consumerChannels = new int[0][];
+	private double[] m_consumerCurrents = new double[0];
+
+	// Per mechanism energy, integrated on the sampler's thread and published to the "Power" table.
+	private final EnergyMeter m_energy = new EnergyMeter(Constants.POWER_MAX_MECHANISMS);
+	private final NetworkTable m_energyTable = NetworkTableInstance.getDefault().getTable("Power");
+	private final DashboardPublisher m_energyPublisher = new DashboardPublisher();
+	private int[] m_energyEntries = new int[0];
+	private int[] m_peakCurrentEntries = new int[0];
+	private int[] m_timeAboveEntries = new int[0];
+
+	// Telemetry channel for every PDP sample, logged on the sampler's thread.
+	private final TelemetryLogger m_telemetry;
+	private final int m_telemetryChannel;
+	private final double[] m_telemetryValues = new double[PDPSampler.SERIES];
+
+	/**
+	 * Creates a new RobotPower.
+	 *
+	 * @param telemetry The telemetry logger for the PDP samples
+	 */
+	public RobotPower(TelemetryLogger telemetry) {
 		super();
 
+		var fields = new String[PDPSampler.SERIES];
+		for (var channel = 0; channel < PDPSampler.CHANNELS; channel++)
+			fields[channel] = "Current " + channel;
+		fields[PDPSampler.VOLTAGE] = "Voltage";
+		fields[PDPSampler.TEMPERATURE] = "Temperature";
+		fields[PDPSampler.TOTAL_CURRENT] = "Total Current";
+		m_telemetry = telemetry;
+		m_telemetryChannel = m_telemetry.registerChannel("PDP", fields);
+
 		m_pdp.resetTotalEnergy();
+		m_sampler.setListener(this::sampled);
+		m_sampler.start();
+
+		// The temperature changes slowly, so it's only read a couple of times a second.
+		TelemetryPublisher.getInstance().addDouble(this::getTemperature, Constants.PDP_TEMPERATURE_TELEMETRY_RATE,
+							   Shuffleboard.getTab("Debugger").add("PDP Temp", 0.0)
+							   .withPosition(8, 8).getEntry());
+	}
+
+	/**
+	 * Puts a mechanism under the current budget. This allocates, so it should be done during
+	 * initialization.
+	 *
+	 * @param name The mechanism's name
+	 * @param priority Higher priority mechanisms are limited last
+	 * @param minimumLimit The lowest output limit (0.0 to 1.0) the mechanism is cut to
+	 * @param highCurrent The current (in amps) above which the mechanism's time is counted
+	 * @param limitSetter Where to send the mechanism's output limit
+	 * @param pdpChannels The PDP channels that power the mechanism
+	 */
+	public void addConsumer(String name, int priority, double minimumLimit, double highCurrent,
+				DoubleConsumer limitSetter, int... pdpChannels) {
+		var index = m_budget.addConsumer(name, priority, minimumLimit);
+		m_limitSetters = Arrays.copyOf(m_limitSetters, index + 1);
+		m_consumerChannels = Arrays.copyOf(m_consumerChannels, index + 1);
+		m_consumerCurrents = Arrays.copyOf(m_consumerCurrents, index + 1);
+		m_limitSetters[index] = limitSetter;
+		m_consumerChannels[index] = pdpChannels.clone();
+
+		var mechanism = m_energy.add(name, highCurrent, pdpChannels);
+		if (mechanism >= 0) {
+			m_energyEntries = Arrays.copyOf(m_energyEntries, mechanism + 1);
+			m_peakCurrentEntries = Arrays.copyOf(m_peakCurrentEntries, mechanism + 1);
+			m_timeAboveEntries = Arrays.copyOf(m_timeAboveEntries, mechanism + 1);
+			m_energyEntries[mechanism] = m_energyPublisher.addDouble(m_energyTable.getEntry(name + "/Energy (J)"),
+										 Constants.ENERGY_PUBLISH_PERIOD);
+			m_peakCurrentEntries[mechanism] = m_energyPublisher.addDouble(m_energyTable.getEntry(name + "/Peak Current (A)"),
+										      Constants.ENERGY_PUBLISH_PERIOD);
+			m_timeAboveEntries[mechanism] = m_energyPublisher.addDouble(m_energyTable.getEntry(name + "/Time Above Threshold (s)"),
+										    Constants.ENERGY_PUBLISH_PERIOD);
+		}
+	}
+
+	// The energy used, peak current and time above threshold of every mechanism.
+	public EnergyMeter getEnergyMeter() {
+		return m_energy;
+	}
+
+	// This method starts the energy accounting over, e.g. at the start of a match.
+	public void resetEnergy() {
+		m_energy.reset();
+	}
+
+	// The sampled PDP history, for anything that wants averages or peaks.
+	public PDPSampler getSampler() {
+		return m_sampler;
 	}
 
 	public double getCurrent(int channel) {
-		return m_pdp.getCurrent(channel);
+		return m_sampler.getLatest(channel);
 	}
 
 	public double getVoltage() {
-		return m_pdp.getVoltage();
+		return m_sampler.getLatest(PDPSampler.VOLTAGE);
 	}
 
 	public double getTotalCurrent() {
-		return m_pdp.getTotalCurrent();
+		return m_sampler.getLatest(PDPSampler.TOTAL_CURRENT);
 	}
 
-	@Log(name = "PDP Temp", tabName = "Debugger",   columnIndex = 8, rowIndex = 8)
 	public double getTemperature() {
-		return m_pdp.getTemperature();
+		return m_sampler.getLatest(PDPSampler.TEMPERATURE);
+	}
+
+	// The voltage the budget expects shortly, from the recent trend.
+	@Log(name = "Predicted Voltage", tabName = "Debugger", columnIndex = 12, rowIndex = 0)
+	public double getPredictedVoltage() {
+		return m_budget.getPredictedVoltage();
+	}
+
+	// How close to brownout, from 0.0 (fine) to 1.0 (every mechanism at its minimum).
+	@Log(name = "Brownout Severity", tabName = "Debugger", columnIndex = 12, rowIndex = 1)
+	public double getBrownoutSeverity() {
+		return m_budget.getSeverity();
+	}
+
+	/**
+	 * Returns the output limit the budget currently gives a mechanism.
+	 *
+	 * @param consumer The mechanism's index, in the order they were added
+	 * @return the limit, from its minimum up to 1.0
+	 */
+	public double getOutputLimit(int consumer) {
+		return m_budget.getLimit(consumer);
 	}
 
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		updateBudget();
+		publishEnergy();
+		LoopProfiler.getInstance().mark(m_profilerPhase);
+	}
+
+	// This method runs on the sampler's thread after every sample.
+	private void sampled() {
+		m_energy.update(m_sampler);
+		m_sampler.getLatest(m_telemetryValues);
+		m_telemetry.log(m_telemetryChannel, m_telemetryValues);
+	}
+
+	// This method hands each mechanism its output limit, from the latest PDP sample.
+	private void updateBudget() {
+		if (m_sampler.getSampleCount() == 0)
+			return;
+		var voltage = m_sampler.getLatest(PDPSampler.VOLTAGE);
+		for (var i = 0; i < m_consumerChannels.length; i++) {
+			var current = 0.0;
+			for (var channel : m_consumerChannels[i])
+				current += m_sampler.getLatest(channel);
+			m_consumerCurrents[i] = current;
+		}
+
+		m_budget.update(m_sampler.getLatestTimestamp(), voltage, m_consumerCurrents);
+		for (var i = 0; i < m_limitSetters.length; i++)
+			m_limitSetters[i].accept(m_budget.getLimit(i));
+	}
+
+	// This method publishes the energy totals that changed, at most once per publish period.
+	private void publishEnergy() {
+		for (var i = 0; i < m_energyEntries.length; i++) {
+			m_energyPublisher.setDouble(m_energyEntries[i], m_energy.getEnergy(i));
+			m_energyPublisher.setDouble(m_peakCurrentEntries[i], m_energy.getPeakCurrent(i));
+			m_energyPublisher.setDouble(m_timeAboveEntries[i], m_energy.getTimeAboveThreshold(i));
+		}
+		m_energyPublisher.publish(Timer.getFPGATimestamp());
 	}
 }
@@ -10,40 +10,203 @@ package com.fireteam322.frc.robot.subsystems;
 import com.ctre.phoenix.motorcontrol.NeutralMode;
 import com.ctre.phoenix.motorcontrol.can.WPI_VictorSPX;
 
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Encoder;
+import edu.wpi.first.wpilibj.RobotController;
 import edu.wpi.first.wpilibj.SpeedControllerGroup;
+import edu.wpi.first.wpilibj.Timer;
+import edu.wpi.first.wpilibj.controller.PIDController;
+import edu.wpi.first.wpilibj.controller.SimpleMotorFeedforward;
 import edu.wpi.first.wpilibj2.command.SubsystemBase;
 import com.fireteam322.frc.robot.Constants;
+import com.fireteam322.frc.robot.utilities.ControlLoop;
+import com.fireteam322.frc.robot.utilities.DoubleMailbox;
+import com.fireteam322.frc.robot.utilities.LoopProfiler;
+import com.fireteam322.frc.robot.utilities.MotorConfigCache;
+import io.github.oblarg.oblog.Loggable;
+import io.github.oblarg.oblog.annotations.Log;
+
+public class Shooter extends SubsystemBase implements Loggable {
+	// The setpoint modes: open loop percent output, or closed loop velocity in RPM.
+	private static final double OPEN_LOOP = 0.0, VELOCITY = 1.0;
 
-public class Shooter extends SubsystemBase {
 	//The Shooter is both our upper level ball intake and our ball output mechanism.
 	private final WPI_VictorSPX m_leftShooterMotor = new WPI_VictorSPX(Constants.LEFT_SHOOTER_MOTOR);
 	private final WPI_VictorSPX m_rightShooterMotor = new WPI_VictorSPX(Constants.RIGHT_SHOOTER_MOTOR);
 	private final SpeedControllerGroup m_shooterMotors = new SpeedControllerGroup(m_leftShooterMotor, m_rightShooterMotor);
+	private final MotorConfigCache m_leftShooterConfig = new MotorConfigCache(m_leftShooterMotor);
+	private final MotorConfigCache m_rightShooterConfig = new MotorConfigCache(m_rightShooterMotor);
+
+	// The flywheel speed, in RPM.
+	private final Encoder m_encoder = new Encoder(Constants.SHOOTER_ENCODER_A, Constants.SHOOTER_ENCODER_B);
+	private final SimpleMotorFeedforward m_feedforward = new SimpleMotorFeedforward(Constants.SHOOTER_KS,
+											Constants.SHOOTER_KV);
+	private final PIDController m_feedback;
+	private final double m_controlPeriod;
+
+	// The mode, setpoint and the time it was written, handed from the commands to the control loop.
+	private final DoubleMailbox m_setpoint = new DoubleMailbox(3);
+	private final double[] m_setpointBuffer = new double[3];
+	private final double[] m_controlSetpoint = new double[3];
+	// Only used on the control loop's thread.
+	private boolean m_velocityControl = false;
+	private double m_atSpeedTime = 0.0;
+	private double m_encoderFaultTime = 0.0;
+	// Published by the control loop.
+	private volatile boolean m_encoderFault = false;
+	private volatile double m_velocity = 0.0;
+	private volatile boolean m_atSpeed = false;
+	// The output limit from the power budget.
+	private volatile double m_outputLimit = 1.0;
+	private final int m_profilerPhase = LoopProfiler.getInstance().registerPhase(getName() + ".periodic()");
 	/**
 	 * Creates a new Shooter.
+	 *
+	 * @param controlLoop The fast control loop that drives the shooter motors
 	 */
-	public Shooter() {
+	public Shooter(ControlLoop controlLoop) {
 		super();
 		// Set the inversion on the shooter motors.
-		m_leftShooterMotor.setInverted(false);
-		m_rightShooterMotor.setInverted(false);
+		m_leftShooterConfig.setInverted(false);
+		m_rightShooterConfig.setInverted(false);
 		m_shooterMotors.setInverted(true);
 
 		// Set the shooter motors to Coast so they don't stop balls moving through them.
-		m_leftShooterMotor.setNeutralMode(NeutralMode.Coast);
-		m_rightShooterMotor.setNeutralMode(NeutralMode.Coast);
+		m_leftShooterConfig.setNeutralMode(NeutralMode.Coast);
+		m_rightShooterConfig.setNeutralMode(NeutralMode.Coast);
+
+		m_encoder.setDistancePerPulse(60.0 / Constants.SHOOTER_ENCODER_CPR);
+		m_encoder.setSamplesToAverage(Constants.SHOOTER_ENCODER_SAMPLES);
+		m_controlPeriod = controlLoop.getPeriod();
+		m_feedback = new PIDController(Constants.SHOOTER_KP, 0.0, 0.0, m_controlPeriod);
+
+		controlLoop.register(this::controlPeriodic);
 	}
 
 	public void stop() {
-		m_shooterMotors.stopMotor();
+		setSetpoint(OPEN_LOOP, 0.0);
 	}
 
 	public void run(double speed) {
-		m_shooterMotors.set(speed);
+		setSetpoint(OPEN_LOOP, speed);
+	}
+
+	// This method holds the flywheel at a speed in RPM, whatever the battery voltage.
+	public void runVelocity(double rpm) {
+		setSetpoint(VELOCITY, rpm);
+	}
+
+	@Log(name = "Shooter RPM", tabName = "Debugger", columnIndex = 12, rowIndex = 2)
+	public double getVelocity() {
+		return m_velocity;
+	}
+
+	// Whether the flywheel has held its velocity setpoint for long enough to shoot.
+	@Log(name = "Shooter At Speed", tabName = "Debugger", columnIndex = 12, rowIndex = 3)
+	public boolean isAtSpeed() {
+		return m_atSpeed;
+	}
+
+	// Whether the encoder is taken to be dead, so the velocity setpoint runs on the feedforward alone.
+	@Log(name = "Shooter Encoder Fault", tabName = "Debugger", columnIndex = 12, rowIndex = 5)
+	public boolean isEncoderFaulted() {
+		return m_encoderFault;
+	}
+
+	// This method limits the shooter's output (0.0 to 1.0), e.g. to stay out of brownout.
+	public void setOutputLimit(double limit) {
+		m_outputLimit = limit;
+	}
+
+	// Hands a new setpoint to the control loop.
+	private void setSetpoint(double mode, double setpoint) {
+		m_setpointBuffer[0] = mode;
+		m_setpointBuffer[1] = setpoint;
+		m_setpointBuffer[2] = Timer.getFPGATimestamp();
+		m_setpoint.write(m_setpointBuffer);
+	}
+
+	// This method is called by the control loop, on the control loop's thread.
+	private void controlPeriodic() {
+		m_setpoint.read(m_controlSetpoint);
+		var velocity = m_encoder.getRate();
+		m_velocity = velocity;
+
+		var target = m_controlSetpoint[1];
+		// A setpoint nobody has renewed lately (a stalled or finished command) stops the flywheel.
+		var stale = Timer.getFPGATimestamp() - m_controlSetpoint[2] > Constants.SETPOINT_TIMEOUT;
+		if (stale || m_controlSetpoint[0] != VELOCITY || target == 0.0) {
+			// Open loop, or a velocity of zero, which lets the flywheel coast down.
+			m_velocityControl = false;
+			m_atSpeedTime = 0.0;
+			m_atSpeed = false;
+			// A jam looks like a dead encoder, so each new velocity setpoint gives the encoder another chance.
+			m_encoderFaultTime = 0.0;
+			m_encoderFault = false;
+			if (stale)
+				m_shooterMotors.stopMotor();
+			else
+				m_shooterMotors.set(m_controlSetpoint[0] == VELOCITY ? 0.0 : target * m_outputLimit);
+			return;
+		}
+
+		if (!m_velocityControl) {
+			m_velocityControl = true;
+			m_feedback.reset();
+			m_atSpeedTime = 0.0;
+		}
+		// Voltage compensation: the same volts reach the motors whatever the battery is at.
+		var battery = RobotController.getBatteryVoltage();
+		if (m_encoderFault && Math.abs(velocity) >= Constants.SHOOTER_ENCODER_FAULT_RPM) {
+			// The encoder is counting again (e.g. a jammed ball has cleared), so go back to closed loop.
+			m_encoderFault = false;
+			m_feedback.reset();
+			m_atSpeedTime = 0.0;
+			m_atSpeed = false;
+		}
+		if (m_encoderFault) {
+			// Without a speed to go by, the feedforward alone gets the flywheel close to the setpoint,
+			// and it's taken to be at speed once it has had time to spin up.
+			var output = battery > 1.0 ? m_feedforward.calculate(target) / battery : 0.0;
+			m_shooterMotors.set(Math.max(-m_outputLimit, Math.min(m_outputLimit, output)));
+			m_atSpeedTime += m_controlPeriod;
+			m_atSpeed = m_atSpeedTime >= Constants.SHOOTER_OPEN_LOOP_SPINUP_TIME;
+			return;
+		}
+
+		var volts = m_feedforward.calculate(target) + m_feedback.calculate(velocity, target);
+		// Never brake the flywheel against its direction, let it coast down instead.
+		if (Math.signum(volts) != Math.signum(target))
+			volts = 0.0;
+		var output = Math.max(-m_outputLimit, Math.min(m_outputLimit, battery > 1.0 ? volts / battery : 0.0));
+		m_shooterMotors.set(output);
+		checkEncoder(output, velocity);
+
+		if (Math.abs(target - velocity) <= Constants.SHOOTER_AT_SPEED_TOLERANCE)
+			m_atSpeedTime += m_controlPeriod;
+		else
+			m_atSpeedTime = 0.0;
+		m_atSpeed = m_atSpeedTime >= Constants.SHOOTER_AT_SPEED_TIME;
+	}
+
+	// This method gives up on the encoder if the flywheel is driven hard for a while and the encoder doesn't see it turn.
+	private void checkEncoder(double output, double velocity) {
+		if (Math.abs(output) >= Constants.SHOOTER_ENCODER_FAULT_OUTPUT
+			&& Math.abs(velocity) < Constants.SHOOTER_ENCODER_FAULT_RPM)
+			m_encoderFaultTime += m_controlPeriod;
+		else
+			m_encoderFaultTime = 0.0;
+		if (m_encoderFaultTime >= Constants.SHOOTER_ENCODER_FAULT_TIME) {
+			m_encoderFault = true;
+			m_atSpeedTime = 0.0;
+			m_atSpeed = false;
+			DriverStation.reportWarning("The shooter encoder isn't counting, running the shooter open loop", false);
+		}
 	}
 
 	@Override
 	public void periodic() {
 		// This method will be called once per scheduler run
+		LoopProfiler.getInstance().mark(m_profilerPhase);
 	}
 }
@@ -0,0 +1,114 @@
+package com.fireteam322.frc.robot.tools;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fireteam322.frc.robot.utilities.TelemetryFormat;
+import com.fireteam322.frc.robot.utilities.TelemetryLogReader;
+
+/**
+ * Desktop tool for reading the robot's telemetry logs. It doesn't need WPILib, so it runs
+ * anywhere with a JDK:
+ *
+ * <pre>
+ * ./gradlew telemetryLog --args="info logs/telemetry-20210101-120000-0000.bin"
+ * ./gradlew telemetryLog --args="csv logs/telemetry-20210101-120000-0000.bin build/telemetry"
+ * </pre>
+ *
+ * <p>{@code info} summarizes the channels of a log, {@code csv} writes one CSV file per channel
+ * (a timestamp column in seconds followed by the channel's fields). Any segment of a segmented
+ * log can be given; all of them are read, in order. The log is streamed, so it can be larger
+ * than memory.
+ */
+public final class TelemetryLogTool {
+	private TelemetryLogTool() {
+	}
+
+	public static void main(String... args) throws IOException {
+		if (args.length == 2 && args[0].equals("info"))
+			info(new File(args[1]));
+		else if (args.length == 3 && args[0].equals("csv"))
+			csv(new File(args[1]), new File(args[2]));
+		else {
+			System.err.println("Usage: TelemetryLogTool info <log>");
+			System.err.println("       TelemetryLogTool csv <log> <output directory>");
+			System.exit(1);
+		}
+	}
+
+	// This method prints the channels in a log with their sample counts and time spans.
+	private static void info(File log) throws IOException {
+		var segments = TelemetryLogReader.findSegments(log);
+		var counts = new ArrayList<long[]>();	// Samples, first timestamp, last timestamp
+		var dropped = 0L;
+
+		try (var reader = new TelemetryLogReader(segments)) {
+			while (reader.next()) {
+				if (reader.getType() == TelemetryFormat.TYPE_SAMPLE) {
+					var id = reader.getChannelId();
+					while (counts.size() <= id)
+						counts.add(new long[] {0, Long.MAX_VALUE, Long.MIN_VALUE});
+					var count = counts.get(id);
+					count[0]++;
+					count[1] = Math.min(count[1], reader.getTimestamp());
+					count[2] = Math.max(count[2], reader.getTimestamp());
+				}
+				else if (reader.getType() == TelemetryFormat.TYPE_DROPPED)
+					dropped += reader.getDropped();
+			}
+
+			System.out.println(segments.size() + " file(s), " + reader.getTruncatedFiles() + " cut short");
+			for (var id = 0; id < reader.getChannelCount(); id++) {
+				var count = id < counts.size() ? counts.get(id) : new long[] {0, 0, 0};
+				System.out.printf("%3d %-20s %8d samples %10.3f - %10.3f s  %s%n", id, reader.getChannelName(id),
+						  count[0], count[0] > 0 ? count[1] / 1.0e6 : 0.0, count[0] > 0 ? count[2] / 1.0e6 : 0.0,
+						  String.join(", ", reader.getChannelFields(id)));
+			}
+			System.out.println(dropped + " samples dropped while logging");
+		}
+	}
+
+	// This method writes each channel of a log to its own CSV file.
+	private static void csv(File log, File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Couldn't create " + directory);
+
+		List<Writer> writers = new ArrayList<>();
+		try (var reader = new TelemetryLogReader(TelemetryLogReader.findSegments(log))) {
+			var line = new StringBuilder();
+			while (reader.next()) {
+				var id = reader.getChannelId();
+				if (reader.getType() == TelemetryFormat.TYPE_CHANNEL) {
+					// Channels are defined again in every segment, only open each file once.
+					while (writers.size() <= id)
+						writers.add(null);
+					if (writers.get(id) != null)
+						continue;
+					var writer = new BufferedWriter(new FileWriter(new File(directory, reader.getChannelName(id) + ".csv")));
+					writer.write("Timestamp," + String.join(",", reader.getChannelFields(id)));
+					writer.newLine();
+					writers.set(id, writer);
+				}
+				else if (reader.getType() == TelemetryFormat.TYPE_SAMPLE && id < writers.size() && writers.get(id) != null) {
+					line.setLength(0);
+					line.append(reader.getTimestamp() / 1.0e6);
+					var values = reader.getValues();
+					for (var i = 0; i < reader.getCount(); i++)
+						line.append(',').append(values[i]);
+					line.append(System.lineSeparator());
+					writers.get(id).append(line);
+				}
+			}
+		} finally {
+			for (var writer : writers) {
+				if (writer != null)
+					writer.close();
+			}
+		}
+	}
+}
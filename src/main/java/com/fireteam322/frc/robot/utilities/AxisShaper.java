@@ -0,0 +1,150 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Shapes a joystick axis before it drives anything: a deadband, an expo curve and a slew rate
+ * limit, applied in that order.
+ *
+ * <ul>
+ * <li>The deadband zeroes small inputs and rescales the rest so the output still starts at 0.0
+ * and reaches 1.0.
+ * <li>The expo curve blends the input with its cube: 0.0 is linear, 1.0 is fully cubic. It gives
+ * fine control near the center without giving up full output.
+ * <li>The slew rate limit bounds how fast the output may change (in full scale per second), which
+ * bounds the acceleration and the current spikes that come with slamming the throttle. Moving
+ * towards zero can be given its own, usually faster, rate so letting go still stops quickly.
+ * </ul>
+ *
+ * <p>An AxisShaper is a DoubleSupplier of the shaped value, so it can stand in for the raw supplier
+ * anywhere, and shapers can be chained. Everything can be changed at runtime, and nothing
+ * allocates. The slew limit assumes the shaper is read from one thread, once per loop; reading it
+ * more than once in a loop just returns the same value.
+ */
+public class AxisShaper implements DoubleSupplier {
+	// A gap longer than this (e.g. while disabled) restarts the slew limit from zero, allowing one
+	// nominal loop's worth of change.
+	private static final double MAX_GAP = 0.25, NOMINAL_PERIOD = 0.02;
+
+	private final DoubleSupplier m_input;
+	private volatile double m_deadband = 0.0;
+	private volatile double m_expo = 0.0;
+	private volatile double m_slewRate = 0.0;
+	private volatile double m_returnSlewRate = 0.0;
+
+	private double m_output = 0.0;
+	private double m_lastTime = Double.NaN;
+
+	/**
+	 * Creates a new AxisShaper that passes its input through unchanged until configured.
+	 *
+	 * @param input The raw axis
+	 */
+	public AxisShaper(DoubleSupplier input) {
+		m_input = input;
+	}
+
+	/**
+	 * Sets the deadband.
+	 *
+	 * @param deadband Inputs smaller than this (0.0 to 1.0) are zero
+	 * @return this shaper, for chaining
+	 */
+	public AxisShaper withDeadband(double deadband) {
+		m_deadband = Math.max(0.0, Math.min(0.99, deadband));
+		return this;
+	}
+
+	/**
+	 * Sets the expo curve.
+	 *
+	 * @param expo 0.0 for linear up to 1.0 for cubic
+	 * @return this shaper, for chaining
+	 */
+	public AxisShaper withExpo(double expo) {
+		m_expo = Math.max(0.0, Math.min(1.0, expo));
+		return this;
+	}
+
+	/**
+	 * Sets the slew rate limit.
+	 *
+	 * @param slewRate The most the output may change away from zero per second, or 0.0 for no limit
+	 * @param returnSlewRate The most the output may change towards zero per second, or 0.0 for no limit
+	 * @return this shaper, for chaining
+	 */
+	public AxisShaper withSlewRate(double slewRate, double returnSlewRate) {
+		m_slewRate = Math.max(0.0, slewRate);
+		m_returnSlewRate = Math.max(0.0, returnSlewRate);
+		return this;
+	}
+
+	public double getDeadband() {
+		return m_deadband;
+	}
+
+	public double getExpo() {
+		return m_expo;
+	}
+
+	public double getSlewRate() {
+		return m_slewRate;
+	}
+
+	public double getReturnSlewRate() {
+		return m_returnSlewRate;
+	}
+
+	// This method restarts the slew limit from zero.
+	public void reset() {
+		m_output = 0.0;
+		m_lastTime = Double.NaN;
+	}
+
+	@Override
+	public double getAsDouble() {
+		var target = shape(m_input.getAsDouble());
+
+		var now = Timer.getFPGATimestamp();
+		var dt = now - m_lastTime;
+		m_lastTime = now;
+		if (Double.isNaN(dt) || dt > MAX_GAP)
+			m_output = limit(0.0, target, NOMINAL_PERIOD);
+		else
+			m_output = limit(m_output, target, dt);
+		return m_output;
+	}
+
+	// This method applies the deadband and the expo curve.
+	private double shape(double value) {
+		var magnitude = Math.min(1.0, Math.abs(value));
+		var deadband = m_deadband;
+		if (magnitude <= deadband)
+			return 0.0;
+		magnitude = (magnitude - deadband) / (1.0 - deadband);
+
+		var expo = m_expo;
+		magnitude = (1.0 - expo) * magnitude + expo * magnitude * magnitude * magnitude;
+		return Math.copySign(magnitude, value);
+	}
+
+	// This method moves the output from current towards target, as far as the slew rates allow in dt.
+	private double limit(double current, double target, double dt) {
+		var towardsZero = current != 0.0 && Math.signum(target - current) != Math.signum(current);
+		// Moving towards zero uses the return rate. Reversing stops at zero first, and then
+		// speeds up the other way at the normal rate.
+		if (towardsZero && Math.signum(target) == -Math.signum(current) && m_slewRate > 0.0)
+			target = 0.0;
+		var change = target - current;
+		var rate = towardsZero ? m_returnSlewRate : m_slewRate;
+		if (rate <= 0.0)
+			return target;
+
+		var maxChange = rate * dt;
+		if (Math.abs(change) <= maxChange)
+			return target;
+		return current + Math.copySign(maxChange, change);
+	}
+}
@@ -0,0 +1,99 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Counts the balls in the robot without ball sensors, from the current spikes the intake and the
+ * feeder make when they grab a ball.
+ *
+ * <p>A spike on the intake while it runs inwards is a ball picked up; a spike on the feeder while
+ * it runs towards the shooter is a ball fed to the shooter. {@link #update()} is meant to run on the
+ * {@link ControlLoop}, so short spikes aren't missed between scheduler runs. The counts are
+ * published through volatile fields and can be read from any thread; a new count (e.g. the balls
+ * preloaded for autonomous) is only requested, and taken by the next update.
+ */
+public class BallCounter {
+	private final DoubleSupplier m_intakeCurrent, m_intakeSpeed;
+	private final DoubleSupplier m_feederCurrent, m_feederSpeed;
+	private final CurrentSpikeDetector m_intakeDetector, m_feederDetector;
+	private final int m_capacity;
+
+	private volatile int m_count = 0;
+	private volatile int m_pickups = 0;
+	private volatile int m_shots = 0;
+	// Taken and cleared in one step, so a request made during an update isn't lost.
+	private final AtomicInteger m_requestedCount = new AtomicInteger(-1);
+
+	/**
+	 * Creates a new BallCounter.
+	 *
+	 * @param intakeCurrent The intake motor current
+	 * @param intakeSpeed The intake's commanded speed, positive inwards
+	 * @param intakeDetector The detector for the intake's spikes
+	 * @param feederCurrent The feeder motor current
+	 * @param feederSpeed The feeder's commanded speed, positive towards the shooter
+	 * @param feederDetector The detector for the feeder's spikes
+	 * @param capacity The most balls the robot holds
+	 */
+	public BallCounter(DoubleSupplier intakeCurrent, DoubleSupplier intakeSpeed, CurrentSpikeDetector intakeDetector,
+			   DoubleSupplier feederCurrent, DoubleSupplier feederSpeed, CurrentSpikeDetector feederDetector,
+			   int capacity) {
+		m_intakeCurrent = intakeCurrent;
+		m_intakeSpeed = intakeSpeed;
+		m_intakeDetector = intakeDetector;
+		m_feederCurrent = feederCurrent;
+		m_feederSpeed = feederSpeed;
+		m_feederDetector = feederDetector;
+		m_capacity = capacity;
+	}
+
+	// This method asks for the count to be set, e.g. to the balls preloaded for autonomous.
+	public void setCount(int count) {
+		m_requestedCount.set(Math.max(0, Math.min(m_capacity, count)));
+	}
+
+	// This method watches the currents, it should be called at a high rate from one thread.
+	public void update() {
+		var count = m_count;
+		var requested = m_requestedCount.getAndSet(-1);
+		if (requested >= 0)
+			count = requested;
+
+		var now = Timer.getFPGATimestamp();
+		if (m_intakeDetector.update(now, m_intakeCurrent.getAsDouble(), m_intakeSpeed.getAsDouble() > 0.0)) {
+			m_pickups++;
+			count = Math.min(m_capacity, count + 1);
+		}
+		if (m_feederDetector.update(now, m_feederCurrent.getAsDouble(), m_feederSpeed.getAsDouble() > 0.0)) {
+			m_shots++;
+			count = Math.max(0, count - 1);
+		}
+		m_count = count;
+	}
+
+	// The number of balls in the robot.
+	public int getCount() {
+		return m_count;
+	}
+
+	public int getCapacity() {
+		return m_capacity;
+	}
+
+	public boolean isFull() {
+		return m_count >= m_capacity;
+	}
+
+	// The number of balls picked up so far.
+	public int getPickups() {
+		return m_pickups;
+	}
+
+	// The number of balls fed to the shooter so far.
+	public int getShots() {
+		return m_shots;
+	}
+}
@@ -0,0 +1,170 @@
+package com.fireteam322.frc.robot.utilities;
+
+/**
+ * Fixed-size ring buffer of timestamped chassis states (heading, encoder distances and pose).
+ *
+ * <p>Samples are stored in primitive arrays that are allocated once, so recording and looking up
+ * states never allocates. Lookups interpolate linearly between the two samples surrounding the
+ * requested time, which lets latency-compensated consumers (e.g. vision) ask where the robot was
+ * when a measurement was actually taken.
+ *
+ * <p>Headings must be continuous (e.g. the navX accumulated angle) so interpolation doesn't have
+ * to deal with wrap-around. All methods are synchronized since samples may be recorded from a
+ * different thread than the one reading them.
+ */
+public class ChassisHistory {
+	private final double[] m_timestamps;
+	private final double[] m_headings;
+	private final double[] m_leftDistances;
+	private final double[] m_rightDistances;
+	private final double[] m_xs;
+	private final double[] m_ys;
+	private int m_head = 0;		// The next slot to write
+	private int m_size = 0;
+
+	/**
+	 * Creates a new ChassisHistory.
+	 *
+	 * @param capacity The number of samples to keep
+	 */
+	public ChassisHistory(int capacity) {
+		if (capacity < 2)
+			throw new IllegalArgumentException("ChassisHistory needs room for at least two samples");
+		m_timestamps = new double[capacity];
+		m_headings = new double[capacity];
+		m_leftDistances = new double[capacity];
+		m_rightDistances = new double[capacity];
+		m_xs = new double[capacity];
+		m_ys = new double[capacity];
+	}
+
+	/**
+	 * Records a sample. Timestamps must be increasing.
+	 *
+	 * @param timestamp Time of the sample in seconds
+	 * @param heading Continuous heading in degrees
+	 * @param leftDistance Left side distance
+	 * @param rightDistance Right side distance
+	 * @param x Field x
+	 * @param y Field y
+	 */
+	public synchronized void record(double timestamp, double heading, double leftDistance, double rightDistance,
+					double x, double y) {
+		m_timestamps[m_head] = timestamp;
+		m_headings[m_head] = heading;
+		m_leftDistances[m_head] = leftDistance;
+		m_rightDistances[m_head] = rightDistance;
+		m_xs[m_head] = x;
+		m_ys[m_head] = y;
+		m_head = (m_head + 1) % m_timestamps.length;
+		if (m_size < m_timestamps.length)
+			m_size++;
+	}
+
+	// This method forgets every sample, e.g. after the sensors are reset.
+	public synchronized void clear() {
+		m_head = 0;
+		m_size = 0;
+	}
+
+	public synchronized int size() {
+		return m_size;
+	}
+
+	/**
+	 * Returns the oldest time that can be looked up without clamping.
+	 *
+	 * @return the timestamp in seconds, or NaN if the history is empty
+	 */
+	public synchronized double getOldestTimestamp() {
+		if (m_size == 0)
+			return Double.NaN;
+		return m_timestamps[index(0)];
+	}
+
+	/**
+	 * Returns the heading at the given time.
+	 *
+	 * @param timestamp Time in seconds
+	 * @return the interpolated heading, clamped to the oldest/newest sample, or NaN if empty
+	 */
+	public synchronized double getHeadingAt(double timestamp) {
+		return interpolate(m_headings, timestamp);
+	}
+
+	/**
+	 * Returns the left side distance at the given time.
+	 *
+	 * @param timestamp Time in seconds
+	 * @return the interpolated distance, clamped to the oldest/newest sample, or NaN if empty
+	 */
+	public synchronized double getLeftDistanceAt(double timestamp) {
+		return interpolate(m_leftDistances, timestamp);
+	}
+
+	/**
+	 * Returns the right side distance at the given time.
+	 *
+	 * @param timestamp Time in seconds
+	 * @return the interpolated distance, clamped to the oldest/newest sample, or NaN if empty
+	 */
+	public synchronized double getRightDistanceAt(double timestamp) {
+		return interpolate(m_rightDistances, timestamp);
+	}
+
+	/**
+	 * Returns the field x at the given time.
+	 *
+	 * @param timestamp Time in seconds
+	 * @return the interpolated x, clamped to the oldest/newest sample, or NaN if empty
+	 */
+	public synchronized double getXAt(double timestamp) {
+		return interpolate(m_xs, timestamp);
+	}
+
+	/**
+	 * Returns the field y at the given time.
+	 *
+	 * @param timestamp Time in seconds
+	 * @return the interpolated y, clamped to the oldest/newest sample, or NaN if empty
+	 */
+	public synchronized double getYAt(double timestamp) {
+		return interpolate(m_ys, timestamp);
+	}
+
+	// Maps a logical position (0 = oldest sample) to its array index.
+	private int index(int position) {
+		return (m_head - m_size + position + m_timestamps.length) % m_timestamps.length;
+	}
+
+	private double interpolate(double[] values, double timestamp) {
+		if (m_size == 0)
+			return Double.NaN;
+
+		var oldest = index(0);
+		var newest = index(m_size - 1);
+		if (timestamp <= m_timestamps[oldest])
+			return values[oldest];
+		if (timestamp >= m_timestamps[newest])
+			return values[newest];
+
+		// Binary search for the last sample at or before the timestamp.
+		var low = 0;
+		var high = m_size - 1;
+		while (high - low > 1) {
+			var middle = (low + high) >>> 1;
+			if (m_timestamps[index(middle)] <= timestamp)
+				low = middle;
+			else
+				high = middle;
+		}
+
+		var before = index(low);
+		var after = index(high);
+		var span = m_timestamps[after] - m_timestamps[before];
+		if (span <= 0.0)
+			return values[after];
+		var fraction = (timestamp - m_timestamps[before]) / span;
+		return values[before] + (values[after] - values[before]) * fraction;
+	}
+}
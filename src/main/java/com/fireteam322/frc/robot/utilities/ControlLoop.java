@@ -0,0 +1,92 @@
+package com.fireteam322.frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.Notifier;
+
+/**
+ * A fast control loop running on its own Notifier thread, separate from the 20 ms command
+ * scheduler.
+ *
+ * <p>Subsystems register callbacks during initialization; every period the loop runs all of them
+ * in registration order. Callbacks run on the Notifier thread, so they must not touch anything the
+ * scheduler thread uses without going through something thread safe such as a
+ * {@link DoubleMailbox}. Running the loop doesn't allocate.
+ */
+public class ControlLoop {
+	private final Notifier m_notifier;
+	private final double m_period;
+	private volatile Runnable[] m_callbacks = new Runnable[0];
+
+	private volatile double m_lastDuration = 0.0;
+	private volatile double m_maxDuration = 0.0;
+	private volatile int m_overruns = 0;
+	private boolean m_running = false;
+
+	/**
+	 * Creates a new ControlLoop. It doesn't run until {@link #start()} is called.
+	 *
+	 * @param period The loop period in seconds
+	 */
+	public ControlLoop(double period) {
+		m_period = period;
+		m_notifier = new Notifier(this::run);
+	}
+
+	/**
+	 * Adds a callback to the loop. This allocates, so it should be done during initialization.
+	 *
+	 * @param callback The callback to run every period
+	 */
+	public synchronized void register(Runnable callback) {
+		var callbacks = new Runnable[m_callbacks.length + 1];
+		System.arraycopy(m_callbacks, 0, callbacks, 0, m_callbacks.length);
+		callbacks[m_callbacks.length] = callback;
+		m_callbacks = callbacks;
+	}
+
+	public synchronized void start() {
+		if (!m_running) {
+			m_running = true;
+			m_notifier.startPeriodic(m_period);
+		}
+	}
+
+	public synchronized void stop() {
+		if (m_running) {
+			m_running = false;
+			m_notifier.stop();
+		}
+	}
+
+	public double getPeriod() {
+		return m_period;
+	}
+
+	// How long (in seconds) the callbacks took the last time the loop ran.
+	public double getLastDuration() {
+		return m_lastDuration;
+	}
+
+	// The longest (in seconds) the callbacks have taken since the loop was created.
+	public double getMaxDuration() {
+		return m_maxDuration;
+	}
+
+	// The number of times the callbacks took longer than the loop period.
+	public int getOverruns() {
+		return m_overruns;
+	}
+
+	private void run() {
+		var start = System.nanoTime();
+		for (Runnable callback : m_callbacks)
+			callback.run();
+		var duration = (System.nanoTime() - start) / 1.0e9;
+
+		// Only this thread writes these, so the read-modify-writes are safe.
+		m_lastDuration = duration;
+		if (duration > m_maxDuration)
+			m_maxDuration = duration;
+		if (duration > m_period)
+			m_overruns++;
+	}
+}
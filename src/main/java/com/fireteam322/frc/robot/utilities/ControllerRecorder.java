@@ -0,0 +1,56 @@
+package com.fireteam322.frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.GenericHID;
+
+/**
+ * Records a controller's inputs to the telemetry log once per loop, so a driving session can be
+ * played back with a {@link ReplayF310Controller}.
+ *
+ * <p>Each sample holds every axis, then the buttons packed into one bit mask (bit 0 is button 1),
+ * then the POV angle.
+ */
+public class ControllerRecorder {
+	private final GenericHID m_controller;
+	private final int m_axes, m_buttons;
+	private final TelemetryLogger m_telemetry;
+	private final int m_channel;
+	private final double[] m_values;
+
+	/**
+	 * Creates a new ControllerRecorder.
+	 *
+	 * @param controller The controller to record
+	 * @param name The telemetry channel name
+	 * @param axes The number of axes to record
+	 * @param buttons The number of buttons to record (at most 32)
+	 * @param telemetry The telemetry logger
+	 */
+	public ControllerRecorder(GenericHID controller, String name, int axes, int buttons, TelemetryLogger telemetry) {
+		m_controller = controller;
+		m_axes = axes;
+		m_buttons = Math.min(buttons, 32);
+		m_telemetry = telemetry;
+
+		var fields = new String[axes + 2];
+		for (var i = 0; i < axes; i++)
+			fields[i] = "Axis " + i;
+		fields[axes] = "Buttons";
+		fields[axes + 1] = "POV";
+		m_channel = telemetry.registerChannel(name, fields);
+		m_values = new double[fields.length];
+	}
+
+	// This method records the current inputs, it should be called once per loop before anything reads them.
+	public void record() {
+		for (var i = 0; i < m_axes; i++)
+			m_values[i] = m_controller.getRawAxis(i);
+		var buttons = 0L;
+		for (var i = 0; i < m_buttons; i++) {
+			if (m_controller.getRawButton(i + 1))
+				buttons |= 1L << i;
+		}
+		m_values[m_axes] = buttons;
+		m_values[m_axes + 1] = m_controller.getPOV();
+		m_telemetry.log(m_channel, m_values);
+	}
+}
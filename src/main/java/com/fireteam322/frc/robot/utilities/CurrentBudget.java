@@ -0,0 +1,181 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.Arrays;
+
+/**
+ * Decides how much output each mechanism may use so the battery voltage stays out of brownout.
+ *
+ * <p>Every update takes the battery voltage and the current each mechanism draws. The voltage
+ * trend over the last few samples (a least squares slope) predicts where the voltage is headed,
+ * and the lower of the measured and the predicted voltage sets how severe the situation is: zero
+ * above the warning voltage, one at the critical voltage.
+ *
+ * <p>Mechanisms are shed by priority. The severity range is split into one stage per mechanism
+ * that is drawing current, lowest priority first; within its stage a mechanism's output limit
+ * goes down from 1.0 to its minimum, so the most important mechanism (usually the drive) is only
+ * cut once everything else already has been. Mechanisms that aren't drawing current are held at
+ * their minimum while the voltage is low, so they can't add a surge. Limits drop immediately but
+ * only recover at a limited rate, which keeps them from oscillating.
+ *
+ * <p>Nothing allocates after the mechanisms are added.
+ */
+public class CurrentBudget {
+	private final double m_warningVoltage, m_criticalVoltage;
+	private final double m_predictionTime, m_recoveryRate, m_activeCurrent;
+
+	// The voltage history, for the trend.
+	private final double[] m_times, m_voltages;
+	private int m_head = 0, m_size = 0;
+
+	private String[] m_names = new String[0];
+	private int[] m_priorities = new int[0];
+	private double[] m_minimumLimits = new double[0];
+	private double[] m_limits = new double[0];
+	private int[] m_order = new int[0];		// Consumers by increasing priority
+
+	private double m_lastTime = Double.NaN;
+	private double m_predictedVoltage = Double.NaN;
+	private double m_severity = 0.0;
+
+	/**
+	 * Creates a new CurrentBudget.
+	 *
+	 * @param warningVoltage The voltage below which outputs start being limited
+	 * @param criticalVoltage The voltage at which every output is at its minimum
+	 * @param predictionTime How far ahead (in seconds) to predict the voltage
+	 * @param trendSamples The number of samples the trend is fitted to
+	 * @param recoveryRate How fast (per second) limits may go back up
+	 * @param activeCurrent The current (in amps) above which a mechanism counts as running
+	 */
+	public CurrentBudget(double warningVoltage, double criticalVoltage, double predictionTime, int trendSamples,
+			     double recoveryRate, double activeCurrent) {
+		m_warningVoltage = warningVoltage;
+		m_criticalVoltage = criticalVoltage;
+		m_predictionTime = predictionTime;
+		m_recoveryRate = recoveryRate;
+		m_activeCurrent = activeCurrent;
+		m_times = new double[Math.max(2, trendSamples)];
+		m_voltages = new double[m_times.length];
+	}
+
+	/**
+	 * Adds a mechanism. This allocates, so it should be done during initialization.
+	 *
+	 * @param name The mechanism's name
+	 * @param priority Higher priority mechanisms are limited last
+	 * @param minimumLimit The lowest output limit (0.0 to 1.0) the mechanism is cut to
+	 * @return the mechanism's index
+	 */
+	public int addConsumer(String name, int priority, double minimumLimit) {
+		var index = m_names.length;
+		m_names = Arrays.copyOf(m_names, index + 1);
+		m_priorities = Arrays.copyOf(m_priorities, index + 1);
+		m_minimumLimits = Arrays.copyOf(m_minimumLimits, index + 1);
+		m_limits = Arrays.copyOf(m_limits, index + 1);
+		m_order = Arrays.copyOf(m_order, index + 1);
+		m_names[index] = name;
+		m_priorities[index] = priority;
+		m_minimumLimits[index] = Math.max(0.0, Math.min(1.0, minimumLimit));
+		m_limits[index] = 1.0;
+
+		// Insert into the priority order, after consumers of the same priority.
+		var position = index;
+		while (position > 0 && m_priorities[m_order[position - 1]] > priority) {
+			m_order[position] = m_order[position - 1];
+			position--;
+		}
+		m_order[position] = index;
+		return index;
+	}
+
+	/**
+	 * Updates the limits.
+	 *
+	 * @param time The time in seconds
+	 * @param voltage The battery voltage
+	 * @param currents The current each mechanism draws, by index
+	 */
+	public void update(double time, double voltage, double[] currents) {
+		m_times[m_head] = time;
+		m_voltages[m_head] = voltage;
+		m_head = (m_head + 1) % m_times.length;
+		if (m_size < m_times.length)
+			m_size++;
+
+		// Only predict the voltage going down; a recovering voltage is trusted once it's measured.
+		m_predictedVoltage = voltage + Math.min(0.0, getTrend()) * m_predictionTime;
+		var lowest = Math.min(voltage, m_predictedVoltage);
+		m_severity = Math.max(0.0, Math.min(1.0, (m_warningVoltage - lowest) / (m_warningVoltage - m_criticalVoltage)));
+
+		var active = 0;
+		for (var i = 0; i < m_names.length; i++) {
+			if (currents[i] > m_activeCurrent)
+				active++;
+		}
+
+		var dt = Double.isNaN(m_lastTime) ? 0.0 : Math.max(0.0, time - m_lastTime);
+		m_lastTime = time;
+		var stage = 0;
+		for (var i = 0; i < m_order.length; i++) {
+			var consumer = m_order[i];
+			double cut;
+			if (currents[consumer] > m_activeCurrent)
+				cut = Math.max(0.0, Math.min(1.0, m_severity * active - stage++));
+			else
+				cut = m_severity > 0.0 ? 1.0 : 0.0;
+			var target = 1.0 - (1.0 - m_minimumLimits[consumer]) * cut;
+			if (target < m_limits[consumer])
+				m_limits[consumer] = target;
+			else
+				m_limits[consumer] = Math.min(target, m_limits[consumer] + m_recoveryRate * dt);
+		}
+	}
+
+	/**
+	 * Returns a mechanism's output limit.
+	 *
+	 * @param consumer The mechanism's index
+	 * @return the limit, from its minimum up to 1.0
+	 */
+	public double getLimit(int consumer) {
+		return m_limits[consumer];
+	}
+
+	public String getName(int consumer) {
+		return m_names[consumer];
+	}
+
+	public int getConsumerCount() {
+		return m_names.length;
+	}
+
+	public double getPredictedVoltage() {
+		return m_predictedVoltage;
+	}
+
+	// How close to brownout, from 0.0 (fine) to 1.0 (critical).
+	public double getSeverity() {
+		return m_severity;
+	}
+
+	// The least squares slope of the voltage history, in volts per second.
+	private double getTrend() {
+		if (m_size < 2)
+			return 0.0;
+		double meanTime = 0.0, meanVoltage = 0.0;
+		for (var i = 0; i < m_size; i++) {
+			meanTime += m_times[i];
+			meanVoltage += m_voltages[i];
+		}
+		meanTime /= m_size;
+		meanVoltage /= m_size;
+
+		double covariance = 0.0, variance = 0.0;
+		for (var i = 0; i < m_size; i++) {
+			var dt = m_times[i] - meanTime;
+			covariance += dt * (m_voltages[i] - meanVoltage);
+			variance += dt * dt;
+		}
+		return variance > 0.0 ? covariance / variance : 0.0;
+	}
+}
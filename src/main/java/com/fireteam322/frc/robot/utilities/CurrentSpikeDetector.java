@@ -0,0 +1,88 @@
+package com.fireteam322.frc.robot.utilities;
+
+/**
+ * Detects the current spike a motor makes when something (e.g. a ball) loads it.
+ *
+ * <p>The detector follows the motor's running current with a slow moving baseline. A spike is a
+ * current more than the threshold above the baseline that lasts at least the debounce time, which
+ * rejects noise and single bad samples. Each spike is reported once; another can only be reported
+ * after the current has come back below half the threshold. The inrush when the motor starts is
+ * ignored, and the baseline stops following the current during a spike so a long load can't
+ * become the new normal. Nothing allocates.
+ *
+ * <p>The detector isn't thread safe; update it from one thread.
+ */
+public class CurrentSpikeDetector {
+	private final double m_threshold, m_debounceTime, m_inrushTime, m_baselineRate;
+
+	private double m_baseline = 0.0;
+	private double m_lastTime = Double.NaN;
+	private double m_runningSince = Double.NaN;
+	private double m_aboveSince = Double.NaN;
+	private boolean m_armed = false;
+
+	/**
+	 * Creates a new CurrentSpikeDetector.
+	 *
+	 * @param threshold How far above the baseline (in amps) the current must go
+	 * @param debounceTime How long (in seconds) the current must stay above the threshold
+	 * @param inrushTime How long (in seconds) after the motor starts to ignore the current
+	 * @param baselineRate How fast (per second) the baseline follows the current
+	 */
+	public CurrentSpikeDetector(double threshold, double debounceTime, double inrushTime, double baselineRate) {
+		m_threshold = threshold;
+		m_debounceTime = debounceTime;
+		m_inrushTime = inrushTime;
+		m_baselineRate = baselineRate;
+	}
+
+	/**
+	 * Takes a current sample.
+	 *
+	 * @param time The time in seconds
+	 * @param current The motor current in amps
+	 * @param running Whether the motor is being driven
+	 * @return true if a spike was detected with this sample
+	 */
+	public boolean update(double time, double current, boolean running) {
+		var dt = Double.isNaN(m_lastTime) ? 0.0 : Math.max(0.0, time - m_lastTime);
+		m_lastTime = time;
+
+		if (!running) {
+			m_runningSince = Double.NaN;
+			m_aboveSince = Double.NaN;
+			m_armed = false;
+			return false;
+		}
+		if (Double.isNaN(m_runningSince))
+			m_runningSince = time;
+		if (time - m_runningSince < m_inrushTime) {
+			// Starting up: follow the current, whatever it does.
+			m_baseline = current;
+			m_armed = true;
+			return false;
+		}
+
+		var excess = current - m_baseline;
+		if (excess > m_threshold) {
+			if (Double.isNaN(m_aboveSince))
+				m_aboveSince = time;
+			if (m_armed && time - m_aboveSince >= m_debounceTime) {
+				m_armed = false;
+				return true;
+			}
+			return false;
+		}
+
+		m_aboveSince = Double.NaN;
+		if (excess < m_threshold / 2.0)
+			m_armed = true;
+		m_baseline += (current - m_baseline) * Math.min(1.0, m_baselineRate * dt);
+		return false;
+	}
+
+	// The running current the spikes are measured from, in amps.
+	public double getBaseline() {
+		return m_baseline;
+	}
+}
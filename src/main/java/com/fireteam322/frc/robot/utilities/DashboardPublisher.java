@@ -0,0 +1,135 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.Arrays;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+
+/**
+ * Publishes values to NetworkTables entries only when they change, and no more often than each
+ * entry's period.
+ *
+ * <p>Outputs set their latest value every loop with {@link #setDouble(int, double)},
+ * {@link #setBoolean(int, boolean)} or {@link #setString(int, String)}, which only stores it.
+ * {@link #publish(double)}, called once per loop, sends each value that differs from what was
+ * last sent, once its entry's period has passed since the last send. A value that changes faster
+ * than its period is sent at the period with the latest value; a value that doesn't change is
+ * never sent again.
+ *
+ * <p>This class is not thread safe; it must only be used from the main robot thread.
+ */
+public class DashboardPublisher {
+	private static final byte DOUBLE = 0, BOOLEAN = 1, STRING = 2;
+
+	private NetworkTableEntry[] m_entries = new NetworkTableEntry[0];
+	private byte[] m_types = new byte[0];
+	private double[] m_periods = new double[0];
+	private double[] m_lastPublish = new double[0];
+	private double[] m_values = new double[0];		// Booleans are 1.0 or 0.0
+	private double[] m_published = new double[0];
+	private String[] m_strings = new String[0];
+	private String[] m_publishedStrings = new String[0];
+	private boolean[] m_sent = new boolean[0];
+
+	private int m_publishCount = 0;
+
+	/**
+	 * Adds a number entry. This allocates, so it should be done during initialization.
+	 *
+	 * @param entry The entry to publish to
+	 * @param period The shortest time between sends, in seconds
+	 * @return the entry's index, for setDouble()
+	 */
+	public int addDouble(NetworkTableEntry entry, double period) {
+		return add(entry, DOUBLE, period);
+	}
+
+	/**
+	 * Adds a boolean entry. This allocates, so it should be done during initialization.
+	 *
+	 * @param entry The entry to publish to
+	 * @param period The shortest time between sends, in seconds
+	 * @return the entry's index, for setBoolean()
+	 */
+	public int addBoolean(NetworkTableEntry entry, double period) {
+		return add(entry, BOOLEAN, period);
+	}
+
+	/**
+	 * Adds a string entry. This allocates, so it should be done during initialization.
+	 *
+	 * @param entry The entry to publish to
+	 * @param period The shortest time between sends, in seconds
+	 * @return the entry's index, for setString()
+	 */
+	public int addString(NetworkTableEntry entry, double period) {
+		return add(entry, STRING, period);
+	}
+
+	private int add(NetworkTableEntry entry, byte type, double period) {
+		var index = m_entries.length;
+		m_entries = Arrays.copyOf(m_entries, index + 1);
+		m_types = Arrays.copyOf(m_types, index + 1);
+		m_periods = Arrays.copyOf(m_periods, index + 1);
+		m_lastPublish = Arrays.copyOf(m_lastPublish, index + 1);
+		m_values = Arrays.copyOf(m_values, index + 1);
+		m_published = Arrays.copyOf(m_published, index + 1);
+		m_strings = Arrays.copyOf(m_strings, index + 1);
+		m_publishedStrings = Arrays.copyOf(m_publishedStrings, index + 1);
+		m_sent = Arrays.copyOf(m_sent, index + 1);
+		m_entries[index] = entry;
+		m_types[index] = type;
+		m_periods[index] = Math.max(0.0, period);
+		m_lastPublish[index] = Double.NEGATIVE_INFINITY;
+		m_strings[index] = "";
+		return index;
+	}
+
+	public void setDouble(int index, double value) {
+		m_values[index] = value;
+	}
+
+	public void setBoolean(int index, boolean value) {
+		m_values[index] = value ? 1.0 : 0.0;
+	}
+
+	public void setString(int index, String value) {
+		m_strings[index] = value == null ? "" : value;
+	}
+
+	// This method sends the changed values that are due, it should be called once per loop.
+	public void publish(double now) {
+		for (var i = 0; i < m_entries.length; i++) {
+			if (now - m_lastPublish[i] < m_periods[i])
+				continue;
+			if (m_types[i] == STRING) {
+				if (m_sent[i] && m_strings[i].equals(m_publishedStrings[i]))
+					continue;
+				m_entries[i].setString(m_strings[i]);
+				m_publishedStrings[i] = m_strings[i];
+			}
+			else {
+				// Compare the bits, so NaN counts as unchanged and -0.0 as changed.
+				if (m_sent[i] && Double.doubleToLongBits(m_values[i]) == Double.doubleToLongBits(m_published[i]))
+					continue;
+				if (m_types[i] == BOOLEAN)
+					m_entries[i].setBoolean(m_values[i] != 0.0);
+				else
+					m_entries[i].setDouble(m_values[i]);
+				m_published[i] = m_values[i];
+			}
+			m_sent[i] = true;
+			m_lastPublish[i] = now;
+			m_publishCount++;
+		}
+	}
+
+	// This method sends every value again at the next publish(), e.g. after the dashboard reconnects.
+	public void invalidate() {
+		Arrays.fill(m_sent, false);
+	}
+
+	// The number of values sent so far.
+	public int getPublishCount() {
+		return m_publishCount;
+	}
+}
@@ -0,0 +1,99 @@
+package com.fireteam322.frc.robot.utilities;
+
+/**
+ * Tracks the field pose of a differential drive robot from its wheel encoders and gyro.
+ *
+ * <p>This does the same job as WPILib's DifferentialDriveOdometry, but keeps the pose in
+ * primitive fields instead of allocating a new Pose2d on every update, so it can be run at a high
+ * rate. The coordinate system is the usual WPILib one: x forward, y to the left, and the heading
+ * counter-clockwise positive, in meters and radians.
+ *
+ * <p>Position fixes from other sources (e.g. vision) can be blended in with
+ * {@link #addPositionMeasurement(double, double, double, double, double)}.
+ */
+public class DifferentialOdometry {
+	private double m_x, m_y, m_heading;
+	private double m_gyroOffset;
+	private double m_previousLeft, m_previousRight;
+
+	/**
+	 * Resets the pose.
+	 *
+	 * @param x Field x in meters
+	 * @param y Field y in meters
+	 * @param heading Field heading in radians, counter-clockwise positive
+	 * @param gyroAngle The current gyro angle in radians, counter-clockwise positive
+	 * @param leftDistance The current left encoder distance in meters
+	 * @param rightDistance The current right encoder distance in meters
+	 */
+	public void reset(double x, double y, double heading, double gyroAngle, double leftDistance, double rightDistance) {
+		m_x = x;
+		m_y = y;
+		m_heading = heading;
+		m_gyroOffset = heading - gyroAngle;
+		m_previousLeft = leftDistance;
+		m_previousRight = rightDistance;
+	}
+
+	/**
+	 * Keeps the current heading when the gyro itself has been reset, so the heading doesn't jump.
+	 *
+	 * @param gyroAngle The gyro angle after the reset, in radians, counter-clockwise positive
+	 */
+	public void rebaseGyro(double gyroAngle) {
+		m_gyroOffset = m_heading - gyroAngle;
+	}
+
+	/**
+	 * Integrates the motion since the last update. The gyro is trusted for the heading; the
+	 * encoders only provide the distance travelled.
+	 *
+	 * @param gyroAngle The gyro angle in radians, counter-clockwise positive
+	 * @param leftDistance The left encoder distance in meters
+	 * @param rightDistance The right encoder distance in meters
+	 */
+	public void update(double gyroAngle, double leftDistance, double rightDistance) {
+		var distance = ((leftDistance - m_previousLeft) + (rightDistance - m_previousRight)) / 2.0;
+		m_previousLeft = leftDistance;
+		m_previousRight = rightDistance;
+
+		var heading = gyroAngle + m_gyroOffset;
+		// Drive along the arc using the heading halfway through it.
+		var averageHeading = m_heading + (heading - m_heading) / 2.0;
+		m_x += distance * Math.cos(averageHeading);
+		m_y += distance * Math.sin(averageHeading);
+		m_heading = heading;
+	}
+
+	/**
+	 * Blends an independent position measurement into the pose.
+	 *
+	 * <p>The measurement is compared against where odometry thought the robot was at the time of
+	 * the measurement, and the difference is applied to the current pose. This way a late
+	 * measurement doesn't drag the pose back to where the robot used to be.
+	 *
+	 * @param measuredX The measured x in meters
+	 * @param measuredY The measured y in meters
+	 * @param estimatedX The odometry x (meters) at the time of the measurement
+	 * @param estimatedY The odometry y (meters) at the time of the measurement
+	 * @param gain How much to trust the measurement, from 0.0 (ignore) to 1.0 (replace)
+	 */
+	public void addPositionMeasurement(double measuredX, double measuredY, double estimatedX, double estimatedY,
+					   double gain) {
+		gain = Math.max(0.0, Math.min(1.0, gain));
+		m_x += (measuredX - estimatedX) * gain;
+		m_y += (measuredY - estimatedY) * gain;
+	}
+
+	public double getX() {
+		return m_x;
+	}
+
+	public double getY() {
+		return m_y;
+	}
+
+	public double getHeading() {
+		return m_heading;
+	}
+}
@@ -0,0 +1,84 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free handoff of a small group of doubles from one thread to another.
+ *
+ * <p>A single writer publishes all values at once and any number of readers copy out a consistent
+ * set of them, without either side blocking or allocating. A sequence number is bumped before and
+ * after each write (a "seqlock"); a reader that sees it change, or sees a write in progress,
+ * simply reads again.
+ *
+ * <p>Only one thread may write to a mailbox.
+ */
+public class DoubleMailbox {
+	private final AtomicLongArray m_values;
+	private final AtomicLongArray m_sequence = new AtomicLongArray(1);
+
+	/**
+	 * Creates a new DoubleMailbox. All values start at 0.0.
+	 *
+	 * @param size The number of values handed off together
+	 */
+	public DoubleMailbox(int size) {
+		m_values = new AtomicLongArray(size);
+	}
+
+	public int size() {
+		return m_values.length();
+	}
+
+	/**
+	 * Publishes a new set of values.
+	 *
+	 * @param values The values, at least {@link #size()} of them
+	 */
+	public void write(double[] values) {
+		var sequence = m_sequence.get(0);
+		m_sequence.set(0, sequence + 1);
+		for (var i = 0; i < m_values.length(); i++)
+			m_values.set(i, Double.doubleToRawLongBits(values[i]));
+		m_sequence.set(0, sequence + 2);
+	}
+
+	/**
+	 * Copies the latest consistent set of values.
+	 *
+	 * @param destination The array to fill, at least {@link #size()} long
+	 * @return the sequence number of the values read; it changes every time new values are written
+	 */
+	public long read(double[] destination) {
+		while (true) {
+			var before = m_sequence.get(0);
+			if ((before & 1) != 0) {
+				Thread.onSpinWait();
+				continue;
+			}
+			for (var i = 0; i < m_values.length(); i++)
+				destination[i] = Double.longBitsToDouble(m_values.get(i));
+			if (m_sequence.get(0) == before)
+				return before;
+		}
+	}
+
+	/**
+	 * Returns a single value. Use {@link #read(double[])} when several values have to match.
+	 *
+	 * @param index The index of the value
+	 * @return the latest value
+	 */
+	public double get(int index) {
+		return Double.longBitsToDouble(m_values.get(index));
+	}
+
+	/**
+	 * Returns the sequence number of the latest write, so readers can tell whether anything new
+	 * has been published.
+	 *
+	 * @return the sequence number
+	 */
+	public long getSequence() {
+		return m_sequence.get(0) & ~1L;
+	}
+}
@@ -0,0 +1,87 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.Arrays;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Captures the Driver Station state once per loop and tells listeners when it changes.
+ *
+ * <p>{@link #update()} is called at the top of robotPeriodic(). It queries the Driver Station once
+ * and publishes an immutable {@link DriverStationState}; everything else in the loop reads that
+ * snapshot instead of making its own HAL calls. When the mode, the alliance, the station or the
+ * FMS or Driver Station attachment changes, the listeners are called with the old and the new
+ * snapshot, so they can act on transitions instead of polling. The match time alone changing
+ * doesn't call them.
+ *
+ * <p>Listeners are called on the robot thread, from update().
+ */
+public class DriverStationMonitor {
+	/**
+	 * Something that acts when the Driver Station state changes.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		void changed(DriverStationState previous, DriverStationState current);
+	}
+
+	private static DriverStationMonitor instance = null;
+
+	private final DriverStation m_ds = DriverStation.getInstance();
+	private volatile DriverStationState m_state = DriverStationState.EMPTY;
+	private Listener[] m_listeners = new Listener[0];
+
+	/**
+	 * Returns the DriverStationMonitor, creating it the first time.
+	 *
+	 * @return the DriverStationMonitor instance
+	 */
+	public static synchronized DriverStationMonitor getInstance() {
+		if (instance == null) {
+			instance = new DriverStationMonitor();
+		}
+		return instance;
+	}
+
+	private DriverStationMonitor() {
+	}
+
+	/**
+	 * Adds a listener. This allocates, so it should be done during initialization.
+	 *
+	 * @param listener The listener to call on every change
+	 */
+	public synchronized void addListener(Listener listener) {
+		m_listeners = Arrays.copyOf(m_listeners, m_listeners.length + 1);
+		m_listeners[m_listeners.length - 1] = listener;
+	}
+
+	// The state captured at the top of this loop.
+	public DriverStationState getState() {
+		return m_state;
+	}
+
+	// This method captures the state, it should be called once at the top of every loop.
+	public void update() {
+		DriverStationState.Mode mode;
+		if (m_ds.isDisabled())
+			mode = DriverStationState.Mode.kDisabled;
+		else if (m_ds.isAutonomous())
+			mode = DriverStationState.Mode.kAutonomous;
+		else if (m_ds.isTest())
+			mode = DriverStationState.Mode.kTest;
+		else
+			mode = DriverStationState.Mode.kTeleop;
+
+		var previous = m_state;
+		var current = new DriverStationState(mode, m_ds.getAlliance(), m_ds.getLocation(), m_ds.getMatchTime(),
+						     m_ds.isFMSAttached(), m_ds.isDSAttached(), Timer.getFPGATimestamp());
+		m_state = current;
+
+		if (!current.isSameStateAs(previous)) {
+			for (var listener : m_listeners)
+				listener.changed(previous, current);
+		}
+	}
+}
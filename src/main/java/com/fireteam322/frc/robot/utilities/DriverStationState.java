@@ -0,0 +1,106 @@
+package com.fireteam322.frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * An immutable, timestamped copy of the Driver Station state the robot code cares about: the
+ * mode, the alliance and station, the match time and whether the FMS and the Driver Station are
+ * attached.
+ *
+ * <p>Snapshots are captured by the {@link DriverStationMonitor} once per loop, so reading one costs
+ * no HAL calls, and everything that reads the same snapshot agrees on the state.
+ */
+public final class DriverStationState {
+	public enum Mode {
+		kDisabled, kAutonomous, kTeleop, kTest
+	}
+
+	/**
+	 * The snapshot used before the first capture.
+	 */
+	public static final DriverStationState EMPTY = new DriverStationState(Mode.kDisabled, DriverStation.Alliance.Invalid,
+									      0, -1.0, false, false, 0.0);
+
+	private final Mode m_mode;
+	private final DriverStation.Alliance m_alliance;
+	private final int m_location;
+	private final double m_matchTime;
+	private final boolean m_fmsAttached, m_dsAttached;
+	private final double m_timestamp;
+
+	/**
+	 * Creates a new DriverStationState.
+	 *
+	 * @param mode The robot mode
+	 * @param alliance The alliance
+	 * @param location The driver station number (1-3), or 0 if unknown
+	 * @param matchTime The approximate match time left in seconds, or -1.0 if unknown
+	 * @param fmsAttached Whether the FMS is attached
+	 * @param dsAttached Whether the Driver Station is attached
+	 * @param timestamp FPGA timestamp (in seconds) at which the state was captured
+	 */
+	DriverStationState(Mode mode, DriverStation.Alliance alliance, int location, double matchTime, boolean fmsAttached,
+			   boolean dsAttached, double timestamp) {
+		m_mode = mode;
+		m_alliance = alliance;
+		m_location = location;
+		m_matchTime = matchTime;
+		m_fmsAttached = fmsAttached;
+		m_dsAttached = dsAttached;
+		m_timestamp = timestamp;
+	}
+
+	public Mode getMode() {
+		return m_mode;
+	}
+
+	public boolean isDisabled() {
+		return m_mode == Mode.kDisabled;
+	}
+
+	public boolean isEnabled() {
+		return m_mode != Mode.kDisabled;
+	}
+
+	public boolean isAutonomous() {
+		return m_mode == Mode.kAutonomous;
+	}
+
+	public boolean isOperatorControl() {
+		return m_mode == Mode.kTeleop;
+	}
+
+	public boolean isTest() {
+		return m_mode == Mode.kTest;
+	}
+
+	public DriverStation.Alliance getAlliance() {
+		return m_alliance;
+	}
+
+	public int getLocation() {
+		return m_location;
+	}
+
+	public double getMatchTime() {
+		return m_matchTime;
+	}
+
+	public boolean isFMSAttached() {
+		return m_fmsAttached;
+	}
+
+	public boolean isDSAttached() {
+		return m_dsAttached;
+	}
+
+	public double getTimestamp() {
+		return m_timestamp;
+	}
+
+	// Whether anything but the match time and the timestamp differs from another snapshot.
+	public boolean isSameStateAs(DriverStationState other) {
+		return m_mode == other.m_mode && m_alliance == other.m_alliance && m_location == other.m_location
+		       && m_fmsAttached == other.m_fmsAttached && m_dsAttached == other.m_dsAttached;
+	}
+}
@@ -0,0 +1,132 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Adds up the energy each mechanism uses, from the PDP channels that power it.
+ *
+ * <p>{@link #update(PDPSampler)} is meant to run on the {@link PDPSampler}'s thread after every
+ * sample, so the accounting costs the robot loop nothing. For every mechanism it integrates the
+ * electrical power (battery voltage times the sum of its channel currents) into joules, and keeps
+ * its peak current and how long it has drawn more than its high current threshold.
+ *
+ * <p>The totals are kept as double bits in an AtomicLongArray, so other threads can read them at
+ * any time without tearing. Mechanisms are added during initialization; a reset (e.g. at the start
+ * of a match) is only requested, and carried out by the next update.
+ */
+public class EnergyMeter {
+	private static final int ENERGY = 0, PEAK_CURRENT = 1, TIME_ABOVE = 2, TOTALS = 3;
+	// Gaps longer than this (e.g. a stalled sampler) aren't integrated.
+	private static final double MAX_GAP = 0.1;
+
+	private final String[] m_names;
+	private final int[][] m_channels;
+	private final double[] m_highCurrents;
+	private volatile int m_count = 0;
+	private final AtomicLongArray m_totals;
+
+	private volatile boolean m_resetRequested = false;
+	private double m_lastTimestamp = Double.NaN;
+
+	/**
+	 * Creates a new EnergyMeter.
+	 *
+	 * @param maxMechanisms The most mechanisms that can be added
+	 */
+	public EnergyMeter(int maxMechanisms) {
+		m_names = new String[maxMechanisms];
+		m_channels = new int[maxMechanisms][];
+		m_highCurrents = new double[maxMechanisms];
+		m_totals = new AtomicLongArray(maxMechanisms * TOTALS);
+	}
+
+	/**
+	 * Adds a mechanism.
+	 *
+	 * @param name The mechanism's name
+	 * @param highCurrent The current (in amps) above which time is counted
+	 * @param channels The PDP channels that power the mechanism
+	 * @return the mechanism's index, or -1 if there are too many mechanisms
+	 */
+	public synchronized int add(String name, double highCurrent, int... channels) {
+		var index = m_count;
+		if (index >= m_names.length)
+			return -1;
+		m_names[index] = name;
+		m_channels[index] = channels.clone();
+		m_highCurrents[index] = highCurrent;
+		// Publishes the mechanism to the sampler thread.
+		m_count = index + 1;
+		return index;
+	}
+
+	// This method asks for every total to start again from zero.
+	public void reset() {
+		m_resetRequested = true;
+	}
+
+	// This method integrates the latest sample, it should be called on the sampler's thread after every sample.
+	public void update(PDPSampler sampler) {
+		var count = m_count;
+		if (m_resetRequested) {
+			m_resetRequested = false;
+			for (var i = 0; i < count * TOTALS; i++)
+				m_totals.set(i, Double.doubleToRawLongBits(0.0));
+		}
+
+		var timestamp = sampler.getLatestTimestamp();
+		var dt = timestamp - m_lastTimestamp;
+		m_lastTimestamp = timestamp;
+		if (!(dt > 0.0 && dt <= MAX_GAP))
+			dt = 0.0;
+
+		var voltage = sampler.getLatest(PDPSampler.VOLTAGE);
+		for (var i = 0; i < count; i++) {
+			var current = 0.0;
+			for (var channel : m_channels[i])
+				current += sampler.getLatest(channel);
+
+			add(i, ENERGY, voltage * current * dt);
+			if (current > get(i, PEAK_CURRENT))
+				set(i, PEAK_CURRENT, current);
+			if (current > m_highCurrents[i])
+				add(i, TIME_ABOVE, dt);
+		}
+	}
+
+	public int getCount() {
+		return m_count;
+	}
+
+	public String getName(int mechanism) {
+		return m_names[mechanism];
+	}
+
+	// The energy the mechanism used, in joules.
+	public double getEnergy(int mechanism) {
+		return get(mechanism, ENERGY);
+	}
+
+	// The highest current the mechanism drew, in amps.
+	public double getPeakCurrent(int mechanism) {
+		return get(mechanism, PEAK_CURRENT);
+	}
+
+	// How long the mechanism drew more than its high current threshold, in seconds.
+	public double getTimeAboveThreshold(int mechanism) {
+		return get(mechanism, TIME_ABOVE);
+	}
+
+	private double get(int mechanism, int total) {
+		return Double.longBitsToDouble(m_totals.get(mechanism * TOTALS + total));
+	}
+
+	private void set(int mechanism, int total, double value) {
+		m_totals.set(mechanism * TOTALS + total, Double.doubleToRawLongBits(value));
+	}
+
+	// Only the sampler's thread writes, so a plain read-modify-write is safe.
+	private void add(int mechanism, int total, double value) {
+		set(mechanism, total, get(mechanism, total) + value);
+	}
+}
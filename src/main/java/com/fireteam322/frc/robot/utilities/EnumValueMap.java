@@ -0,0 +1,56 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.function.ToIntFunction;
+
+/**
+ * Looks enum constants up by an int value (e.g. a button number or a Limelight mode).
+ *
+ * <p>The constants are stored in an array indexed by value, so a lookup is an array access: unlike
+ * a Map&lt;Integer, E&gt; nothing is boxed and nothing is allocated. The values should be small
+ * and dense, since the array spans from the smallest value to the largest.
+ *
+ * @param <E> The enum type
+ */
+public final class EnumValueMap<E extends Enum<E>> {
+	private final Object[] m_constants;
+	private final int m_offset;
+
+	/**
+	 * Creates a new EnumValueMap.
+	 *
+	 * @param constants The enum constants, usually values()
+	 * @param valueOf The function giving the value of a constant
+	 */
+	public EnumValueMap(E[] constants, ToIntFunction<E> valueOf) {
+		var min = Integer.MAX_VALUE;
+		var max = Integer.MIN_VALUE;
+		for (E constant : constants) {
+			min = Math.min(min, valueOf.applyAsInt(constant));
+			max = Math.max(max, valueOf.applyAsInt(constant));
+		}
+		if (constants.length == 0)
+			min = max = 0;
+
+		m_offset = min;
+		m_constants = new Object[max - min + 1];
+		for (E constant : constants) {
+			var index = valueOf.applyAsInt(constant) - m_offset;
+			// Like Map.put(), a later constant with the same value wins.
+			m_constants[index] = constant;
+		}
+	}
+
+	/**
+	 * Returns the constant with the given value.
+	 *
+	 * @param value The value
+	 * @return the constant, or null if no constant has that value
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(int value) {
+		var index = value - m_offset;
+		if (index < 0 || index >= m_constants.length)
+			return null;
+		return (E) m_constants[index];
+	}
+}
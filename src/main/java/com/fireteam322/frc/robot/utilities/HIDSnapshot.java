@@ -0,0 +1,96 @@
+package com.fireteam322.frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * The axes, buttons and POV of a controller, captured once per loop.
+ *
+ * <p>Reading a controller through GenericHID goes to the Driver Station (and its locks) for every
+ * single value, and two reads in the same loop can see different Driver Station packets. A
+ * snapshot reads everything once, with all the buttons in a single call, and then answers every
+ * read from primitive fields, so everything that runs in one scheduler pass sees the same inputs.
+ *
+ * <p>Pressed and released are worked out from consecutive captures and, like the Driver
+ * Station's, stay set until they are checked.
+ */
+public class HIDSnapshot {
+	private final int m_port;
+	private final double[] m_axes;
+	private final int m_buttonMask;
+	private int m_buttons = 0;
+	private int m_pressed = 0;
+	private int m_released = 0;
+	private int m_pov = -1;
+
+	/**
+	 * Creates a new HIDSnapshot.
+	 *
+	 * @param port The port on the Driver Station that the controller is plugged into
+	 * @param axes The number of axes to capture
+	 * @param buttons The number of buttons to capture (at most 32)
+	 */
+	public HIDSnapshot(int port, int axes, int buttons) {
+		m_port = port;
+		m_axes = new double[axes];
+		m_buttonMask = buttons >= 32 ? -1 : (1 << buttons) - 1;
+	}
+
+	// This method reads the controller from the Driver Station.
+	public void capture() {
+		var ds = DriverStation.getInstance();
+		for (var i = 0; i < m_axes.length; i++)
+			m_axes[i] = ds.getStickAxis(m_port, i);
+		setButtons(ds.getStickButtons(m_port));
+		m_pov = ds.getStickPOV(m_port, 0);
+	}
+
+	/**
+	 * Sets the inputs from somewhere other than the Driver Station (e.g. a recording).
+	 *
+	 * @param axes The array holding the axes
+	 * @param buttons The buttons as a bit mask, bit 0 is button 1
+	 * @param pov The POV angle, or -1 if it isn't pressed
+	 */
+	public void set(double[] axes, int buttons, int pov) {
+		System.arraycopy(axes, 0, m_axes, 0, Math.min(axes.length, m_axes.length));
+		setButtons(buttons);
+		m_pov = pov;
+	}
+
+	public double getAxis(int axis) {
+		if (axis < 0 || axis >= m_axes.length)
+			return 0.0;
+		return m_axes[axis];
+	}
+
+	public boolean getButton(int button) {
+		return (m_buttons & mask(button)) != 0;
+	}
+
+	public boolean getButtonPressed(int button) {
+		var pressed = (m_pressed & mask(button)) != 0;
+		m_pressed &= ~mask(button);
+		return pressed;
+	}
+
+	public boolean getButtonReleased(int button) {
+		var released = (m_released & mask(button)) != 0;
+		m_released &= ~mask(button);
+		return released;
+	}
+
+	public int getPOV() {
+		return m_pov;
+	}
+
+	private int mask(int button) {
+		return button >= 1 && button <= 32 ? (1 << (button - 1)) & m_buttonMask : 0;
+	}
+
+	private void setButtons(int buttons) {
+		buttons &= m_buttonMask;
+		m_pressed |= buttons & ~m_buttons;
+		m_released |= m_buttons & ~buttons;
+		m_buttons = buttons;
+	}
+}
@@ -0,0 +1,176 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import edu.wpi.first.wpilibj.AddressableLED;
+import edu.wpi.first.wpilibj.AddressableLEDBuffer;
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Drives an addressable LED strip from layers of precomputed {@link LEDPattern}s, on its own
+ * Notifier thread.
+ *
+ * <p>Layers are drawn bottom (layer 0) to top, each covering only the pixels its pattern sets.
+ * Each layer can blink: it's shown for the blink time and hidden for the blink time. A layer
+ * either plays its pattern as an animation or shows one frame picked by index (e.g. a gauge
+ * level).
+ *
+ * <p>Every period the layers are composed into packed pixels and compared with what the strip is
+ * showing. Only the pixels that changed are written into the buffer, and the buffer is only sent
+ * to the strip when something changed; the strip keeps showing the last data on its own. Any
+ * thread can change the layers at any time: a layer's pattern and frame are published together,
+ * so the renderer never pairs a new pattern with the old frame. Rendering doesn't allocate, and
+ * setting a layer to what it already shows doesn't either.
+ */
+public class LEDAnimator {
+	private static final int BLACK = LEDPattern.pack(0, 0, 0);
+
+	// What a layer shows: a pattern and the frame to show, or -1 to animate it.
+	private static final class Layer {
+		final LEDPattern m_pattern;
+		final int m_frame;
+
+		Layer(LEDPattern pattern, int frame) {
+			m_pattern = pattern;
+			m_frame = frame;
+		}
+	}
+
+	private final AddressableLED m_led;
+	private final AddressableLEDBuffer m_buffer;
+	private final Notifier m_notifier;
+	private final double m_period;
+
+	private final AtomicReferenceArray<Layer> m_layers;	// null for an empty layer
+	private final AtomicLongArray m_blinkTimes;		// Double bits, 0.0 for no blink
+
+	// Only used on the animator's thread.
+	private final int[] m_composite;
+	private final int[] m_shown;
+	private volatile int m_pushes = 0;
+	private boolean m_running = false;
+
+	/**
+	 * Creates a new LEDAnimator. It doesn't drive the strip until {@link #start()} is called.
+	 *
+	 * @param led The strip, with its length already set
+	 * @param length The strip length
+	 * @param layers The number of layers
+	 * @param period How often to render, in seconds
+	 */
+	public LEDAnimator(AddressableLED led, int length, int layers, double period) {
+		m_led = led;
+		m_buffer = new AddressableLEDBuffer(length);
+		m_period = period;
+		m_layers = new AtomicReferenceArray<>(layers);
+		m_blinkTimes = new AtomicLongArray(layers);
+		m_composite = new int[length];
+		// Starts out transparent, which nothing composes to, so the first render sends every pixel.
+		m_shown = new int[length];
+		m_notifier = new Notifier(this::render);
+	}
+
+	public synchronized void start() {
+		if (!m_running) {
+			m_running = true;
+			m_led.setData(m_buffer);
+			m_led.start();
+			m_notifier.startPeriodic(m_period);
+		}
+	}
+
+	public synchronized void stop() {
+		if (m_running) {
+			m_running = false;
+			m_notifier.stop();
+			m_led.stop();
+		}
+	}
+
+	public int getLength() {
+		return m_composite.length;
+	}
+
+	/**
+	 * Shows an animated pattern on a layer.
+	 *
+	 * @param layer The layer
+	 * @param pattern The pattern, or null to clear the layer
+	 */
+	public void setPattern(int layer, LEDPattern pattern) {
+		setLayer(layer, pattern, -1);
+	}
+
+	/**
+	 * Shows one frame of a pattern on a layer.
+	 *
+	 * @param layer The layer
+	 * @param pattern The pattern, or null to clear the layer
+	 * @param frame The frame to show
+	 */
+	public void setPattern(int layer, LEDPattern pattern, int frame) {
+		setLayer(layer, pattern, Math.max(0, frame));
+	}
+
+	// This method publishes a layer's pattern and frame in one step, unless it already shows them.
+	private void setLayer(int layer, LEDPattern pattern, int frame) {
+		if (pattern == null) {
+			m_layers.set(layer, null);
+			return;
+		}
+		var current = m_layers.get(layer);
+		if (current != null && current.m_pattern == pattern && current.m_frame == frame)
+			return;
+		m_layers.set(layer, new Layer(pattern, frame));
+	}
+
+	// This method blinks a layer, on and off for the blink time each, or stops it blinking with 0.0.
+	public void setBlink(int layer, double blinkTime) {
+		m_blinkTimes.set(layer, Double.doubleToRawLongBits(Math.max(0.0, blinkTime)));
+	}
+
+	public void clear(int layer) {
+		setPattern(layer, null);
+	}
+
+	// The number of times data has been sent to the strip.
+	public int getPushCount() {
+		return m_pushes;
+	}
+
+	// This method is called by the Notifier, on the animator's thread.
+	private void render() {
+		var now = Timer.getFPGATimestamp();
+		Arrays.fill(m_composite, BLACK);
+		for (var layer = 0; layer < m_layers.length(); layer++) {
+			var current = m_layers.get(layer);
+			if (current == null)
+				continue;
+			var blinkTime = Double.longBitsToDouble(m_blinkTimes.get(layer));
+			if (blinkTime > 0.0 && (long) (now / blinkTime) % 2 == 1)
+				continue;
+			var pixels = current.m_frame < 0 ? current.m_pattern.getFrameAt(now) : current.m_pattern.getFrame(current.m_frame);
+			for (var i = 0; i < Math.min(pixels.length, m_composite.length); i++) {
+				if (LEDPattern.isOpaque(pixels[i]))
+					m_composite[i] = pixels[i];
+			}
+		}
+
+		var changed = false;
+		for (var i = 0; i < m_composite.length; i++) {
+			var pixel = m_composite[i];
+			if (pixel != m_shown[i]) {
+				m_shown[i] = pixel;
+				m_buffer.setRGB(i, LEDPattern.red(pixel), LEDPattern.green(pixel), LEDPattern.blue(pixel));
+				changed = true;
+			}
+		}
+		if (changed) {
+			m_led.setData(m_buffer);
+			m_pushes++;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package com.fireteam322.frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.util.Color;
+
+/**
+ * A precomputed LED strip pattern: one or more frames of packed pixels.
+ *
+ * <p>Each pixel is an int, 0xAARRGGBB. An alpha of zero is transparent, so a layer drawn on top of
+ * another only covers the pixels it sets; any other alpha is opaque. A pattern is either animated
+ * (its frames play in a loop at the frame time) or a set of levels picked by index, like a gauge.
+ * Everything is computed when the pattern is made, so showing it costs no math and no allocation.
+ * Patterns are immutable and can be shared between threads.
+ */
+public final class LEDPattern {
+	public static final int TRANSPARENT = 0;
+
+	private final int[][] m_frames;
+	private final double m_frameTime;
+
+	/**
+	 * Creates a new LEDPattern. The frames are owned by the pattern.
+	 *
+	 * @param frames The frames, each with one packed pixel per LED
+	 * @param frameTime How long each frame is shown when animated, in seconds
+	 */
+	public LEDPattern(int[][] frames, double frameTime) {
+		m_frames = frames;
+		m_frameTime = frameTime;
+	}
+
+	public int getFrameCount() {
+		return m_frames.length;
+	}
+
+	// The frame at an index, clamped to the frames there are.
+	public int[] getFrame(int index) {
+		return m_frames[Math.max(0, Math.min(m_frames.length - 1, index))];
+	}
+
+	// The frame to show at a time in seconds, when animated.
+	public int[] getFrameAt(double time) {
+		if (m_frames.length == 1 || m_frameTime <= 0.0)
+			return m_frames[0];
+		return m_frames[(int) ((long) (time / m_frameTime) % m_frames.length)];
+	}
+
+	// This method packs an opaque pixel.
+	public static int pack(int red, int green, int blue) {
+		return 0xFF000000 | (red & 0xFF) << 16 | (green & 0xFF) << 8 | (blue & 0xFF);
+	}
+
+	public static int pack(Color color) {
+		return pack((int) (color.red * 255), (int) (color.green * 255), (int) (color.blue * 255));
+	}
+
+	public static int red(int pixel) {
+		return (pixel >> 16) & 0xFF;
+	}
+
+	public static int green(int pixel) {
+		return (pixel >> 8) & 0xFF;
+	}
+
+	public static int blue(int pixel) {
+		return pixel & 0xFF;
+	}
+
+	public static boolean isOpaque(int pixel) {
+		return (pixel >>> 24) != 0;
+	}
+
+	// A single color over the whole strip.
+	public static LEDPattern solid(int length, Color color) {
+		return section(length, 0, length, color);
+	}
+
+	// A single color over part of the strip, transparent elsewhere.
+	public static LEDPattern section(int length, int start, int count, Color color) {
+		var frame = new int[length];
+		var pixel = pack(color);
+		for (var i = Math.max(0, start); i < Math.min(length, start + count); i++)
+			frame[i] = pixel;
+		return new LEDPattern(new int[][] { frame }, 0.0);
+	}
+
+	/**
+	 * Creates a gauge over the start of the strip, with one frame per level.
+	 *
+	 * @param length The strip length
+	 * @param levels The highest level
+	 * @param segment The LEDs per level
+	 * @param on The color of the levels reached
+	 * @param off The color of the levels not reached
+	 * @return a pattern whose frame n shows level n
+	 */
+	public static LEDPattern gauge(int length, int levels, int segment, Color on, Color off) {
+		var frames = new int[levels + 1][length];
+		var onPixel = pack(on);
+		var offPixel = pack(off);
+		for (var level = 0; level <= levels; level++) {
+			for (var i = 0; i < Math.min(length, levels * segment); i++)
+				frames[level][i] = i < level * segment ? onPixel : offPixel;
+		}
+		return new LEDPattern(frames, 0.0);
+	}
+
+	/**
+	 * Creates a rainbow that moves along the strip.
+	 *
+	 * @param length The strip length
+	 * @param frameCount The frames in one cycle of the rainbow
+	 * @param frameTime How long each frame is shown, in seconds
+	 * @return the animated rainbow
+	 */
+	public static LEDPattern rainbow(int length, int frameCount, double frameTime) {
+		var frames = new int[frameCount][length];
+		for (var f = 0; f < frameCount; f++) {
+			var firstHue = f * 180 / frameCount;
+			for (var i = 0; i < length; i++)
+				frames[f][i] = packHSV((firstHue + (i * 180 / length)) % 180, 255, 128);
+		}
+		return new LEDPattern(frames, frameTime);
+	}
+
+	// This method packs a pixel from the same HSV (hue 0-180) that AddressableLEDBuffer.setHSV takes.
+	private static int packHSV(int h, int s, int v) {
+		if (s == 0)
+			return pack(v, v, v);
+		var region = h / 30;
+		var remainder = (h - (region * 30)) * 6;
+		var p = (v * (255 - s)) >> 8;
+		var q = (v * (255 - ((s * remainder) >> 8))) >> 8;
+		var t = (v * (255 - ((s * (255 - remainder)) >> 8))) >> 8;
+		switch (region) {
+		case 0:
+			return pack(v, t, p);
+		case 1:
+			return pack(q, v, p);
+		case 2:
+			return pack(p, v, t);
+		case 3:
+			return pack(p, q, v);
+		case 4:
+			return pack(t, p, v);
+		default:
+			return pack(v, p, q);
+		}
+	}
+}
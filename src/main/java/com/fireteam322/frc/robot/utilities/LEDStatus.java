@@ -0,0 +1,74 @@
+package com.fireteam322.frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.DriverStation;
+
+/**
+ * The robot status the LEDs show, worked out once per loop and shared by every LED output.
+ *
+ * <p>{@link #update(DriverStationState)} takes the loop's Driver Station snapshot, and from it the
+ * alliance, the blink rate for the robot mode and whether a blinking light is lit right now (at
+ * the snapshot's timestamp). Every output
+ * uses the same blink phase ({@link #isLit(double, double)}), so the CANifier LED and the LED strip
+ * blink together, and none of them query the Driver Station or the clock themselves.
+ */
+public class LEDStatus {
+	// Blink rates (on time and off time, in seconds) below this don't blink.
+	public static final double MIN_BLINK_RATE = 0.1;
+
+	private final double m_disabledBlinkRate, m_autonomousBlinkRate, m_teleopBlinkRate;
+
+	private DriverStation.Alliance m_alliance = DriverStation.Alliance.Invalid;
+	private double m_blinkRate = 0.0;
+	private boolean m_lit = true;
+
+	/**
+	 * Creates a new LEDStatus.
+	 *
+	 * @param disabledBlinkRate The blink rate while disabled
+	 * @param autonomousBlinkRate The blink rate in autonomous
+	 * @param teleopBlinkRate The blink rate in teleop
+	 */
+	public LEDStatus(double disabledBlinkRate, double autonomousBlinkRate, double teleopBlinkRate) {
+		m_disabledBlinkRate = disabledBlinkRate;
+		m_autonomousBlinkRate = autonomousBlinkRate;
+		m_teleopBlinkRate = teleopBlinkRate;
+	}
+
+	// Whether a light blinking at a rate is lit at a time, the same for every output.
+	public static boolean isLit(double time, double blinkRate) {
+		return blinkRate < MIN_BLINK_RATE || (long) (time / blinkRate) % 2 == 0;
+	}
+
+	// This method works out the status from the loop's Driver Station state, once per loop.
+	public void update(DriverStationState state) {
+		double blinkRate;
+		if (state.isDisabled())
+			blinkRate = m_disabledBlinkRate;
+		else if (state.isAutonomous())
+			blinkRate = m_autonomousBlinkRate;
+		else if (state.isOperatorControl())
+			blinkRate = m_teleopBlinkRate;
+		else
+			blinkRate = 0.0;
+		if (blinkRate < MIN_BLINK_RATE)
+			blinkRate = 0.0;
+
+		m_alliance = state.getAlliance();
+		m_blinkRate = blinkRate;
+		m_lit = isLit(state.getTimestamp(), blinkRate);
+	}
+
+	public DriverStation.Alliance getAlliance() {
+		return m_alliance;
+	}
+
+	// The blink rate for the robot mode, or 0.0 for no blink.
+	public double getBlinkRate() {
+		return m_blinkRate;
+	}
+
+	// Whether the lights are in the lit half of the blink.
+	public boolean isLit() {
+		return m_lit;
+	}
+}
@@ -1,10 +1,11 @@
 package com.fireteam322.frc.robot.utilities;
 
-import java.util.HashMap;
-import java.util.Map;
-
+import edu.wpi.first.networktables.EntryListenerFlags;
+import edu.wpi.first.networktables.EntryNotification;
+import edu.wpi.first.networktables.NetworkTable;
 import edu.wpi.first.networktables.NetworkTableEntry;
 import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.Timer;
 
 /**
  * Wrapper class for getting and setting Limelight NetworkTable values.
@@ -19,7 +20,37 @@ import edu.wpi.first.networktables.NetworkTableInstance;
  * @author Raa'Shaun Hunter
  */
 public class Limelight {
-	private static NetworkTableInstance table = null;
+	private static final double[] NO_CAMTRAN = new double[6];
+
+	private final NetworkTable m_table;
+	private final NetworkTableEntry m_tv, m_tx, m_ty, m_ta, m_ts, m_tl, m_camtran;
+	private final NetworkTableEntry m_ledMode, m_camMode, m_pipeline;
+
+	private volatile LimelightTarget m_target = LimelightTarget.EMPTY;
+
+	/**
+	 * Creates a new Limelight. All entries are resolved here and a listener keeps an up to date
+	 * {@link LimelightTarget} snapshot, so the getters never touch NetworkTables.
+	 *
+	 * <p>The latency (tl) changes with every processed frame, so its update marks a new frame: the
+	 * snapshot is built then, once, from all of the frame's values read together.
+	 */
+	public Limelight() {
+		m_table = NetworkTableInstance.getDefault().getTable("limelight");
+		m_tv = m_table.getEntry("tv");
+		m_tx = m_table.getEntry("tx");
+		m_ty = m_table.getEntry("ty");
+		m_ta = m_table.getEntry("ta");
+		m_ts = m_table.getEntry("ts");
+		m_tl = m_table.getEntry("tl");
+		m_camtran = m_table.getEntry("camtran");
+		m_ledMode = m_table.getEntry("ledMode");
+		m_camMode = m_table.getEntry("camMode");
+		m_pipeline = m_table.getEntry("pipeline");
+
+		var flags = EntryListenerFlags.kNew | EntryListenerFlags.kUpdate | EntryListenerFlags.kImmediate;
+		m_tl.addListener(this::publishTarget, flags);
+	}
 
 	/**
 	 * Light modes for Limelight.
@@ -32,13 +63,7 @@ public class Limelight {
 		kforceBlink(2),	//2	force blink
 		kforceOn(3);	//3	force on
 
-		private static final Map<Integer, LightMode> MY_MAP = new HashMap<Integer, LightMode>();
-
-		static {
-			for (LightMode LedMode : values()) {
-				MY_MAP.put(LedMode.getValue(), LedMode);
-			}
-		}
+		private static final EnumValueMap<LightMode> MY_MAP = new EnumValueMap<>(values(), LightMode::getValue);
 
 		private int value;
 
@@ -68,13 +93,7 @@ public class Limelight {
 		kvision(0),
 		kdriver(1);
 
-		private static final Map<Integer, CameraMode> MY_MAP = new HashMap<Integer, CameraMode>();
-
-		static {
-			for (CameraMode CameraMode : values()) {
-				MY_MAP.put(CameraMode.getValue(), CameraMode);
-			}
-		}
+		private static final EnumValueMap<CameraMode> MY_MAP = new EnumValueMap<>(values(), CameraMode::getValue);
 
 		private int value;
 
@@ -105,13 +124,7 @@ public class Limelight {
 		kPiPMain(1),
 		kPiPSecondary(2);
 
-		private static final Map<Integer,  StreamType> MY_MAP = new HashMap<Integer,  StreamType>();
-
-		static {
-			for ( StreamType StreamType : values()) {
-				MY_MAP.put( StreamType.getValue(),  StreamType);
-			}
-		}
+		private static final EnumValueMap<StreamType> MY_MAP = new EnumValueMap<>(values(), StreamType::getValue);
 
 		private int value;
 
@@ -143,13 +156,7 @@ public class Limelight {
 		kon(1),
 		koff(0);
 
-		private static final Map<Integer,  Snapshot> MY_MAP = new HashMap<Integer,  Snapshot>();
-
-		static {
-			for ( Snapshot Snapshot : values()) {
-				MY_MAP.put( Snapshot.getValue(),  Snapshot);
-			}
-		}
+		private static final EnumValueMap<Snapshot> MY_MAP = new EnumValueMap<>(values(), Snapshot::getValue);
 
 		private int value;
 
@@ -181,13 +188,7 @@ public class Limelight {
 		ktwo(1),
 		kthree(2);
 
-		private static final Map<Integer,  Advanced_Target> MY_MAP = new HashMap<Integer,  Advanced_Target>();
-
-		static {
-			for ( Advanced_Target Advanced_Target : values()) {
-				MY_MAP.put( Advanced_Target.getValue(),  Advanced_Target);
-			}
-		}
+		private static final EnumValueMap<Advanced_Target> MY_MAP = new EnumValueMap<>(values(), Advanced_Target::getValue);
 
 		private int value;
 
@@ -219,13 +220,7 @@ public class Limelight {
 		kone(0),
 		ktwo(1);
 
-		private static final Map<Integer,  Advanced_Crosshair> MY_MAP = new HashMap<Integer,  Advanced_Crosshair>();
-
-		static {
-			for ( Advanced_Crosshair Advanced_Crosshair : values()) {
-				MY_MAP.put( Advanced_Crosshair.getValue(),  Advanced_Crosshair);
-			}
-		}
+		private static final EnumValueMap<Advanced_Crosshair> MY_MAP = new EnumValueMap<>(values(), Advanced_Crosshair::getValue);
 
 		private int value;
 
@@ -247,13 +242,32 @@ public class Limelight {
 
 	}
 
+	/**
+	 * Gets the latest targeting values published by the Limelight.
+	 *
+	 * @return an immutable, timestamped snapshot.
+	 */
+	public LimelightTarget getTarget() {
+		return m_target;
+	}
+
+	/**
+	 * Replaces the snapshot with one from a telemetry log, when replaying a session.
+	 *
+	 * @param values The sample written by {@link LimelightTarget#toTelemetry(double[], double)}
+	 * @param count The number of values in the sample
+	 */
+	public void replayTarget(double[] values, int count) {
+		m_target = LimelightTarget.fromTelemetry(values, count, Timer.getFPGATimestamp());
+	}
+
 	/**
 	 * Gets whether a target is detected by the Limelight.
 	 *
 	 * @return true if a target is detected, false otherwise.
 	 */
 	public boolean isTarget() {
-		return getValue("tv").getDouble(0) == 1;
+		return m_target.isValid();
 	}
 
 	/**
@@ -262,7 +276,7 @@ public class Limelight {
 	 * @return tx as reported by the Limelight.
 	 */
 	public double getTX() {
-		return getValue("tx").getDouble(0.00);
+		return m_target.getTX();
 	}
 
 	/**
@@ -271,7 +285,7 @@ public class Limelight {
 	 * @return ty as reported by the Limelight.
 	 */
 	public double getTY() {
-		return getValue("ty").getDouble(0.00);
+		return m_target.getTY();
 	}
 
 	/**
@@ -280,7 +294,7 @@ public class Limelight {
 	 * @return Area of target.
 	 */
 	public double getTA() {
-		return getValue("ta").getDouble(0.00);
+		return m_target.getTA();
 	}
 
 	/**
@@ -289,7 +303,7 @@ public class Limelight {
 	 * @return Target skew.
 	 */
 	public double getTS() {
-		return getValue("ts").getDouble(0.00);
+		return m_target.getTS();
 	}
 
 	/**
@@ -298,7 +312,7 @@ public class Limelight {
 	 * @return Target latency.
 	 */
 	public double getTL() {
-		return getValue("tl").getDouble(0.00);
+		return m_target.getTL();
 	}
 
 	/**
@@ -308,7 +322,7 @@ public class Limelight {
 	 *            Light mode for Limelight.
 	 */
 	public void setLedMode(LightMode mode) {
-		getValue("ledMode").setNumber(mode.ordinal());
+		m_ledMode.setNumber(mode.ordinal());
 	}
 
 	/**
@@ -318,7 +332,7 @@ public class Limelight {
 	 *            Camera mode for Limelight.
 	 */
 	public void setCameraMode(CameraMode mode) {
-		getValue("camMode").setNumber(mode.ordinal());
+		m_camMode.setNumber(mode.ordinal());
 	}
 
 	/**
@@ -328,18 +342,19 @@ public class Limelight {
 	 *            Pipeline number (0-9).
 	 */
 	public void setPipeline(int number) {
-		getValue("pipeline").setNumber(number);
+		m_pipeline.setNumber(number);
 	}
 
 	/**
 	 * getCameraTranslation() - Results of a 3D position solution
 	 *
-	 * @return 6 numbers: Translation (x,y,y) Rotation(pitch,yaw,roll)
+	 * @param index 0-5: Translation (x,y,z) Rotation(pitch,yaw,roll)
+	 * @return the requested value of the 3D solution
 	 *
 	 * @author Gabriel McMillan
 	 */
-	public double getCameraTranslation() {
-		return getValue("camtran").getDouble(0);
+	public double getCameraTranslation(int index) {
+		return m_target.getCameraTranslation(index);
 	}
 
 	/**
@@ -377,8 +392,21 @@ public class Limelight {
 	 * @author Gabriel McMillan
 	 */
 	public double getDist(double targetHeight, double limelightHeight, double limelightAngle) {
-		double a2 = getTY();
-		double currentDist = (Math.abs(targetHeight - limelightHeight) / Math.tan(limelightAngle + a2));
+		return getDist(m_target, targetHeight, limelightHeight, limelightAngle);
+	}
+
+	/**
+	 * getDist() - calculates approximate distance from a fixed angled limelight to
+	 * the target in a snapshot, so the distance matches the snapshot's other values.
+	 *
+	 * @param target = the snapshot, targetHeight = target height in meters, limelightHeight = height of
+	 *			limelight from the ground in meters, limelightAngle = angle in degrees of the limelight on the robot.
+	 * @return approx distance in meters
+	 */
+	public static double getDist(LimelightTarget target, double targetHeight, double limelightHeight,
+				     double limelightAngle) {
+		double a2 = target.getTY();
+		double currentDist = (Math.abs(targetHeight - limelightHeight) / Math.tan(Math.toRadians(limelightAngle + a2)));
 		return currentDist;
 	}
 
@@ -389,10 +417,19 @@ public class Limelight {
 	 * @return NetworkTableEntry of given entry.
 	 */
 	private NetworkTableEntry getValue(String key) {
-		if (table == null) {
-			table = NetworkTableInstance.getDefault();
-		}
+		return m_table.getEntry(key);
+	}
 
-		return table.getTable("limelight").getEntry(key);
+	// This method runs on the NetworkTables listener thread, once per frame.
+	private void publishTarget(EntryNotification notification) {
+		if (!notification.value.isDouble())
+			return;
+		// NetworkTables hands back a fresh array (or our empty default), so the snapshot can own it.
+		var camtran = m_camtran.getDoubleArray(NO_CAMTRAN);
+		if (camtran == NO_CAMTRAN)
+			camtran = new double[6];
+		m_target = new LimelightTarget(m_tv.getDouble(0.0) == 1, m_tx.getDouble(0.0), m_ty.getDouble(0.0),
+					       m_ta.getDouble(0.0), m_ts.getDouble(0.0), notification.value.getDouble(),
+					       camtran, Timer.getFPGATimestamp());
 	}
 }
@@ -0,0 +1,160 @@
+package com.fireteam322.frc.robot.utilities;
+
+/**
+ * An immutable, timestamped copy of the Limelight's targeting values.
+ *
+ * <p>Snapshots are built on the NetworkTables listener thread once per processed frame, from all
+ * of that frame's values, so reading one from the robot thread costs no NetworkTables lookups and
+ * no allocation.
+ *
+ * <p>A snapshot can also be written to and rebuilt from a telemetry sample, see
+ * {@link #toTelemetry(double[], double)}.
+ */
+public final class LimelightTarget {
+	/**
+	 * Image capture latency (ms) that isn't included in tl. The Limelight documentation
+	 * recommends adding at least 11 ms.
+	 */
+	public static final double CAPTURE_LATENCY_MS = 11.0;
+
+	/**
+	 * The snapshot used before the Limelight has published anything.
+	 */
+	public static final LimelightTarget EMPTY = new LimelightTarget(false, 0.0, 0.0, 0.0, 0.0, 0.0, new double[6], 0.0);
+
+	private static final String[] TELEMETRY_FIELDS = {"Valid", "TX", "TY", "TA", "TS", "TL",
+							  "Camtran X", "Camtran Y", "Camtran Z",
+							  "Camtran Pitch", "Camtran Yaw", "Camtran Roll", "Age"};
+	private static final int CAMTRAN = 6, AGE = 12;
+
+	/**
+	 * The number of values in a telemetry sample.
+	 */
+	public static final int TELEMETRY_SIZE = TELEMETRY_FIELDS.length;
+
+	private final boolean m_valid;
+	private final double m_tx, m_ty, m_ta, m_ts, m_tl;
+	private final double[] m_camtran;
+	private final double m_timestamp;
+
+	/**
+	 * Creates a new LimelightTarget.
+	 *
+	 * @param valid Whether the Limelight has a valid target (tv)
+	 * @param tx Horizontal offset from crosshair to target in degrees
+	 * @param ty Vertical offset from crosshair to target in degrees
+	 * @param ta Target area in percent of the image
+	 * @param ts Target skew in degrees
+	 * @param tl Pipeline latency in milliseconds
+	 * @param camtran The 3D solution (x, y, z, pitch, yaw, roll); the array is owned by the snapshot
+	 * @param timestamp FPGA timestamp (in seconds) at which these values were received
+	 */
+	LimelightTarget(boolean valid, double tx, double ty, double ta, double ts, double tl, double[] camtran,
+			double timestamp) {
+		m_valid = valid;
+		m_tx = tx;
+		m_ty = ty;
+		m_ta = ta;
+		m_ts = ts;
+		m_tl = tl;
+		m_camtran = camtran;
+		m_timestamp = timestamp;
+	}
+
+	public boolean isValid() {
+		return m_valid;
+	}
+
+	public double getTX() {
+		return m_tx;
+	}
+
+	public double getTY() {
+		return m_ty;
+	}
+
+	public double getTA() {
+		return m_ta;
+	}
+
+	public double getTS() {
+		return m_ts;
+	}
+
+	public double getTL() {
+		return m_tl;
+	}
+
+	/**
+	 * Returns one value of the camtran 3D solution.
+	 *
+	 * @param index 0-5: Translation (x, y, z) Rotation (pitch, yaw, roll)
+	 * @return the value, or 0.0 if the Limelight hasn't published a solution
+	 */
+	public double getCameraTranslation(int index) {
+		if (index < 0 || index >= m_camtran.length)
+			return 0.0;
+		return m_camtran[index];
+	}
+
+	/**
+	 * Returns the FPGA timestamp at which these values reached the robot.
+	 *
+	 * @return the timestamp in seconds
+	 */
+	public double getTimestamp() {
+		return m_timestamp;
+	}
+
+	/**
+	 * Returns the FPGA timestamp at which the frame behind these values was captured, i.e. the
+	 * receive time minus the pipeline latency and the image capture latency.
+	 *
+	 * @return the timestamp in seconds
+	 */
+	public double getCaptureTimestamp() {
+		return m_timestamp - (m_tl + CAPTURE_LATENCY_MS) / 1000.0;
+	}
+
+	// The telemetry channel's field names, in the order toTelemetry() writes them.
+	public static String[] getTelemetryFields() {
+		return TELEMETRY_FIELDS.clone();
+	}
+
+	/**
+	 * Writes the snapshot into a telemetry sample. Instead of the receive timestamp, the sample
+	 * holds the snapshot's age when it was logged, which is what a replay needs.
+	 *
+	 * @param values The sample to fill, at least {@link #TELEMETRY_SIZE} long
+	 * @param now The current FPGA timestamp in seconds
+	 */
+	public void toTelemetry(double[] values, double now) {
+		values[0] = m_valid ? 1.0 : 0.0;
+		values[1] = m_tx;
+		values[2] = m_ty;
+		values[3] = m_ta;
+		values[4] = m_ts;
+		values[5] = m_tl;
+		for (var i = 0; i < 6; i++)
+			values[CAMTRAN + i] = getCameraTranslation(i);
+		values[AGE] = now - m_timestamp;
+	}
+
+	/**
+	 * Rebuilds a snapshot from a telemetry sample, received as long before now as it was before
+	 * it was logged.
+	 *
+	 * @param values The sample written by {@link #toTelemetry(double[], double)}
+	 * @param count The number of values in the sample
+	 * @param now The current FPGA timestamp in seconds
+	 * @return the snapshot, or {@link #EMPTY} if the sample is too short
+	 */
+	public static LimelightTarget fromTelemetry(double[] values, int count, double now) {
+		if (count < TELEMETRY_SIZE)
+			return EMPTY;
+		var camtran = new double[6];
+		System.arraycopy(values, CAMTRAN, camtran, 0, camtran.length);
+		return new LimelightTarget(values[0] != 0.0, values[1], values[2], values[3], values[4], values[5],
+					   camtran, now - values[AGE]);
+	}
+}
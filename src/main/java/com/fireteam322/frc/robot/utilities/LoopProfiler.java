@@ -0,0 +1,257 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj2.command.Command;
+import edu.wpi.first.wpilibj2.command.CommandScheduler;
+
+/**
+ * Per-loop profiler for the robot's main (scheduler) thread.
+ *
+ * <p>Each loop is split into phases (a subsystem's periodic(), a command's execute(), Oblog
+ * updates, ...). A phase is charged with the time elapsed since the previous mark, so phases
+ * only need to call {@link #mark(int)} once they are done. Samples go into preallocated
+ * fixed-width histograms; p50/p99/max for every phase are published to the "Profiler"
+ * NetworkTable once per publish period and the histograms are then cleared, so the published
+ * numbers always describe the most recent window.
+ *
+ * <p>When a loop runs past its budget the phase that took the most time in that loop is
+ * reported to the Driver Station (at most once per publish period).
+ *
+ * <p>This class is not thread safe; it must only be used from the main robot thread.
+ */
+public class LoopProfiler {
+	private static final int MAX_PHASES = 48;
+	private static final int BUCKETS = 256;		// The last bucket collects every overflow
+	private static final long BUCKET_WIDTH_NS = 100000;	// 0.1 ms per bucket
+	private static final double NS_PER_MS = 1.0e6;
+
+	private static LoopProfiler instance = null;
+
+	private final String[] m_names = new String[MAX_PHASES];
+	private final int[][] m_histograms = new int[MAX_PHASES][BUCKETS];
+	private final int[] m_samples = new int[MAX_PHASES];
+	private final long[] m_maxNs = new long[MAX_PHASES];
+	private final NetworkTableEntry[] m_p50Entries = new NetworkTableEntry[MAX_PHASES];
+	private final NetworkTableEntry[] m_p99Entries = new NetworkTableEntry[MAX_PHASES];
+	private final NetworkTableEntry[] m_maxEntries = new NetworkTableEntry[MAX_PHASES];
+	private final Map<Command, Integer> m_commandPhases = new IdentityHashMap<>();
+
+	private final NetworkTable m_table;
+	private final NetworkTableEntry m_loopP99Entry, m_loopMaxEntry, m_overrunsEntry, m_overrunPhaseEntry;
+	private final int[] m_loopHistogram = new int[BUCKETS];
+
+	private int m_phaseCount = 0;
+	private int m_loopSamples = 0;
+	private long m_loopMaxNs = 0;
+	private long m_budgetNs;
+	private long m_publishPeriodNs;
+	private boolean m_enabled = true;
+
+	private long m_loopStart, m_lastMark, m_lastPublish;
+	private int m_worstPhase = -1;
+	private long m_worstPhaseNs;
+	private int m_overruns = 0;
+	private boolean m_overrunReported = false;
+
+	private LoopProfiler() {
+		m_table = NetworkTableInstance.getDefault().getTable("Profiler");
+		m_loopP99Entry = m_table.getEntry("Loop/p99");
+		m_loopMaxEntry = m_table.getEntry("Loop/max");
+		m_overrunsEntry = m_table.getEntry("Loop/overruns");
+		m_overrunPhaseEntry = m_table.getEntry("Loop/lastOverrunPhase");
+		setBudget(0.02);
+		setPublishPeriod(1.0);
+		m_lastPublish = System.nanoTime();
+	}
+
+	/**
+	 * Returns the profiler for the main robot thread.
+	 *
+	 * @return the LoopProfiler instance
+	 */
+	public static synchronized LoopProfiler getInstance() {
+		if (instance == null) {
+			instance = new LoopProfiler();
+		}
+		return instance;
+	}
+
+	/**
+	 * Sets the loop time budget. Loops taking longer than this are counted as overruns.
+	 *
+	 * @param seconds The loop budget in seconds
+	 */
+	public void setBudget(double seconds) {
+		m_budgetNs = (long) (seconds * 1.0e9);
+	}
+
+	/**
+	 * Sets how often the histogram summary is published to NetworkTables.
+	 *
+	 * @param seconds The publish period in seconds
+	 */
+	public void setPublishPeriod(double seconds) {
+		m_publishPeriodNs = (long) (seconds * 1.0e9);
+	}
+
+	public void setEnabled(boolean enabled) {
+		m_enabled = enabled;
+	}
+
+	public boolean isEnabled() {
+		return m_enabled;
+	}
+
+	/**
+	 * Registers a new phase. This allocates, so it should be done during initialization.
+	 *
+	 * @param name The name the phase is published under
+	 * @return the phase index to pass to {@link #mark(int)}, or -1 if no more phases are available
+	 */
+	public int registerPhase(String name) {
+		if (m_phaseCount >= MAX_PHASES) {
+			DriverStation.reportWarning("LoopProfiler: too many phases, not profiling " + name, false);
+			return -1;
+		}
+		var phase = m_phaseCount++;
+		m_names[phase] = name;
+		m_p50Entries[phase] = m_table.getEntry(name + "/p50");
+		m_p99Entries[phase] = m_table.getEntry(name + "/p99");
+		m_maxEntries[phase] = m_table.getEntry(name + "/max");
+		return phase;
+	}
+
+	/**
+	 * Charges every command's execute() to its own phase by hooking the scheduler.
+	 *
+	 * <p>The time is measured from the previous mark, so the first command of a loop also
+	 * carries the scheduler's button polling.
+	 *
+	 * @param scheduler The scheduler to hook
+	 */
+	public void profileCommands(CommandScheduler scheduler) {
+		scheduler.onCommandExecute(command -> mark(getCommandPhase(command)));
+	}
+
+	private int getCommandPhase(Command command) {
+		var phase = m_commandPhases.get(command);
+		if (phase == null) {
+			// Only happens the first time a command runs.
+			phase = registerPhase(command.getName() + "@" + Integer.toHexString(System.identityHashCode(command)));
+			m_commandPhases.put(command, phase);
+		}
+		return phase;
+	}
+
+	// This method starts a new loop. Call it first thing in robotPeriodic().
+	public void startLoop() {
+		if (!m_enabled)
+			return;
+		m_loopStart = System.nanoTime();
+		m_lastMark = m_loopStart;
+		m_worstPhase = -1;
+		m_worstPhaseNs = 0;
+	}
+
+	/**
+	 * Charges the time since the previous mark to a phase.
+	 *
+	 * @param phase The phase returned by {@link #registerPhase(String)}
+	 */
+	public void mark(int phase) {
+		if (!m_enabled)
+			return;
+		var now = System.nanoTime();
+		var elapsed = now - m_lastMark;
+		m_lastMark = now;
+		if (phase < 0)
+			return;
+
+		m_histograms[phase][bucket(elapsed)]++;
+		m_samples[phase]++;
+		if (elapsed > m_maxNs[phase])
+			m_maxNs[phase] = elapsed;
+		if (elapsed > m_worstPhaseNs) {
+			m_worstPhaseNs = elapsed;
+			m_worstPhase = phase;
+		}
+	}
+
+	// This method finishes the loop, flags overruns and publishes the summary when it's due.
+	public void endLoop() {
+		if (!m_enabled)
+			return;
+		var now = System.nanoTime();
+		var loopTime = now - m_loopStart;
+
+		m_loopHistogram[bucket(loopTime)]++;
+		m_loopSamples++;
+		if (loopTime > m_loopMaxNs)
+			m_loopMaxNs = loopTime;
+
+		if (loopTime > m_budgetNs) {
+			m_overruns++;
+			if (m_worstPhase >= 0)
+				m_overrunPhaseEntry.setString(m_names[m_worstPhase]);
+			if (!m_overrunReported) {
+				// Only one message per publish period to keep the console (and the loop) quiet.
+				m_overrunReported = true;
+				DriverStation.reportWarning("Loop overrun: " + (loopTime / NS_PER_MS) + " ms, worst phase "
+							    + (m_worstPhase >= 0 ? m_names[m_worstPhase] : "unknown") + " ("
+							    + (m_worstPhaseNs / NS_PER_MS) + " ms)", false);
+			}
+		}
+
+		if (now - m_lastPublish >= m_publishPeriodNs) {
+			m_lastPublish = now;
+			publish();
+		}
+	}
+
+	private void publish() {
+		for (var phase = 0; phase < m_phaseCount; phase++) {
+			if (m_samples[phase] == 0)
+				continue;
+			m_p50Entries[phase].setDouble(percentile(m_histograms[phase], m_samples[phase], 0.50));
+			m_p99Entries[phase].setDouble(percentile(m_histograms[phase], m_samples[phase], 0.99));
+			m_maxEntries[phase].setDouble(m_maxNs[phase] / NS_PER_MS);
+			Arrays.fill(m_histograms[phase], 0);
+			m_samples[phase] = 0;
+			m_maxNs[phase] = 0;
+		}
+
+		if (m_loopSamples > 0) {
+			m_loopP99Entry.setDouble(percentile(m_loopHistogram, m_loopSamples, 0.99));
+			m_loopMaxEntry.setDouble(m_loopMaxNs / NS_PER_MS);
+			Arrays.fill(m_loopHistogram, 0);
+			m_loopSamples = 0;
+			m_loopMaxNs = 0;
+		}
+		m_overrunsEntry.setDouble(m_overruns);
+		m_overrunReported = false;
+	}
+
+	private static int bucket(long elapsedNs) {
+		var bucket = elapsedNs / BUCKET_WIDTH_NS;
+		return (int) Math.min(bucket, BUCKETS - 1);
+	}
+
+	// Returns the upper edge (in ms) of the bucket containing the given percentile.
+	private static double percentile(int[] histogram, int samples, double percentile) {
+		var target = (int) Math.ceil(samples * percentile);
+		var count = 0;
+		for (var i = 0; i < BUCKETS; i++) {
+			count += histogram[i];
+			if (count >= target)
+				return ((i + 1) * BUCKET_WIDTH_NS) / NS_PER_MS;
+		}
+		return (BUCKETS * BUCKET_WIDTH_NS) / NS_PER_MS;
+	}
+}
@@ -0,0 +1,152 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Writes telemetry into memory-mapped log file segments.
+ *
+ * <p>Each segment is preallocated and mapped when it is opened, so writing a batch is only a
+ * memory copy. Because the data is in the kernel's page cache as soon as it is copied, it
+ * survives the robot code crashing or being restarted. After every write the committed length in
+ * the segment header is updated, and {@link #flush()} forces the mapped pages to storage, so after
+ * a power loss a reader still finds everything up to the last flush (see {@link TelemetryFormat}).
+ *
+ * <p>When a batch doesn't fit in the current segment, the segment is finished (forced, with its
+ * committed length in the header) and the next one is opened. The file keeps its preallocated size:
+ * Java can't unmap a buffer, and Windows won't resize a file that is still mapped.
+ *
+ * <p>Segments are named {@code <name>-0000.bin}, {@code <name>-0001.bin} and so on. Every boot
+ * starts a new log, so to bound the disk space used, the oldest segments in the directory (of any
+ * log) are deleted once all of them together take more than the maximum.
+ *
+ * <p>Like every {@link TelemetrySink}, this is only used from the logger's writer thread, so the
+ * forcing never happens on the robot thread.
+ */
+public class MappedTelemetrySink implements TelemetrySink {
+	private final File m_directory;
+	private final String m_name;
+	private final int m_segmentSize;
+	private final long m_maxDirectorySize;
+
+	private int m_segment = -1;
+	private MappedByteBuffer m_buffer = null;
+	private boolean m_newFile = false;
+	private boolean m_dirty = false;
+
+	/**
+	 * Creates a new MappedTelemetrySink. The first segment is created when the first record is
+	 * written.
+	 *
+	 * @param directory The directory to put the segments in (created if needed)
+	 * @param name The name of the log, which the segment numbers are appended to
+	 * @param segmentSize The size of each segment in bytes
+	 * @param maxDirectorySize The most bytes all segments in the directory may take, or 0 for no limit
+	 */
+	public MappedTelemetrySink(File directory, String name, int segmentSize, long maxDirectorySize) {
+		m_directory = directory;
+		m_name = name;
+		m_segmentSize = segmentSize;
+		m_maxDirectorySize = maxDirectorySize;
+	}
+
+	@Override
+	public void prepare(int length) throws IOException {
+		if (length > m_segmentSize - TelemetryFormat.HEADER_SIZE)
+			throw new IOException("Telemetry batches of " + length + " bytes don't fit in a segment");
+		if (m_buffer == null || m_buffer.remaining() < length) {
+			finishSegment();
+			openSegment(m_segment + 1);
+		}
+	}
+
+	@Override
+	public boolean isNewFile() {
+		return m_newFile;
+	}
+
+	@Override
+	public void write(ByteBuffer records) throws IOException {
+		prepare(records.remaining());
+		m_buffer.put(records);
+		// Only count the records once all of them are in.
+		m_buffer.putLong(TelemetryFormat.COMMITTED_OFFSET, m_buffer.position() - TelemetryFormat.HEADER_SIZE);
+		m_newFile = false;
+		m_dirty = true;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (m_buffer != null && m_dirty) {
+			m_buffer.force();
+			m_dirty = false;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		finishSegment();
+	}
+
+	// The file of the given segment.
+	public File getSegmentFile(int segment) {
+		return new File(m_directory, String.format("%s-%04d.bin", m_name, segment));
+	}
+
+	private void openSegment(int segment) throws IOException {
+		if (!m_directory.isDirectory() && !m_directory.mkdirs())
+			throw new IOException("Couldn't create " + m_directory);
+
+		try (var file = new RandomAccessFile(getSegmentFile(segment), "rw");
+		     var channel = file.getChannel()) {
+			// A file left by an older log with the same name (e.g. the clock wasn't set at boot) would
+			// leave its records behind ours for a reader to pick up, so start from an empty file.
+			file.setLength(0);
+			// Mapping past the end of the file grows it with zeros; the mapping stays valid after the channel is closed.
+			m_buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, m_segmentSize);
+		}
+		m_segment = segment;
+		TelemetryFormat.putHeader(m_buffer, segment);
+		m_newFile = true;
+		m_dirty = true;
+
+		if (m_maxDirectorySize > 0)
+			deleteOldSegments(getSegmentFile(segment));
+	}
+
+	// This method deletes the oldest segments in the directory until they fit in the maximum size.
+	private void deleteOldSegments(File current) {
+		var segments = m_directory.listFiles((directory, name) -> name.endsWith(".bin"));
+		if (segments == null)
+			return;
+		Arrays.sort(segments, Comparator.comparingLong(File::lastModified).thenComparing(File::getName));
+		var total = 0L;
+		for (var segment : segments)
+			total += segment.length();
+		for (var segment : segments) {
+			if (total <= m_maxDirectorySize)
+				break;
+			if (segment.equals(current))
+				continue;
+			var length = segment.length();
+			// A segment that is still mapped (on Windows) can't be deleted; a later pass gets it.
+			if (segment.delete())
+				total -= length;
+		}
+	}
+
+	private void finishSegment() throws IOException {
+		if (m_buffer == null)
+			return;
+		// The header already holds the committed length, so readers know where the records end.
+		m_buffer.force();
+		m_buffer = null;
+		m_dirty = false;
+	}
+}
@@ -0,0 +1,106 @@
+package com.fireteam322.frc.robot.utilities;
+
+import com.ctre.phoenix.motorcontrol.NeutralMode;
+import com.ctre.phoenix.motorcontrol.can.BaseMotorController;
+
+/**
+ * Remembers the configuration last sent to a CTRE motor controller and only sends it again when
+ * it changes.
+ *
+ * <p>Every setNeutralMode() call is a CAN frame, even when the controller is already in that
+ * mode, so code that sets it every loop floods the bus for nothing. If the controller reports
+ * that it has reset (e.g. after a brownout) the cache is dropped, since the controller has lost
+ * its settings too.
+ *
+ * <p>Counters of the frames sent and saved are kept for every cache and in total. This class is
+ * not thread safe; configure each motor controller from a single thread.
+ */
+public class MotorConfigCache {
+	private static int totalFramesSent = 0;
+	private static int totalFramesSaved = 0;
+
+	private final BaseMotorController m_motor;
+	private NeutralMode m_neutralMode = null;
+	private int m_inverted = -1;	// -1 unknown, 0 not inverted, 1 inverted
+	private int m_framesSent = 0;
+	private int m_framesSaved = 0;
+
+	/**
+	 * Creates a new MotorConfigCache. Nothing is assumed about the controller's current state.
+	 *
+	 * @param motor The motor controller to configure
+	 */
+	public MotorConfigCache(BaseMotorController motor) {
+		m_motor = motor;
+	}
+
+	/**
+	 * Sets the neutral mode, if it isn't already set.
+	 *
+	 * @param mode The desired neutral mode
+	 */
+	public void setNeutralMode(NeutralMode mode) {
+		checkReset();
+		if (mode == m_neutralMode) {
+			saved();
+			return;
+		}
+		m_motor.setNeutralMode(mode);
+		m_neutralMode = mode;
+		sent();
+	}
+
+	/**
+	 * Sets the motor inversion, if it isn't already set.
+	 *
+	 * @param inverted Whether the motor output should be inverted
+	 */
+	public void setInverted(boolean inverted) {
+		checkReset();
+		var state = inverted ? 1 : 0;
+		if (state == m_inverted) {
+			saved();
+			return;
+		}
+		m_motor.setInverted(inverted);
+		m_inverted = state;
+		sent();
+	}
+
+	// This method forgets the cached state so the next call is always sent.
+	public void invalidate() {
+		m_neutralMode = null;
+		m_inverted = -1;
+	}
+
+	public int getFramesSent() {
+		return m_framesSent;
+	}
+
+	public int getFramesSaved() {
+		return m_framesSaved;
+	}
+
+	public static int getTotalFramesSent() {
+		return totalFramesSent;
+	}
+
+	public static int getTotalFramesSaved() {
+		return totalFramesSaved;
+	}
+
+	private void checkReset() {
+		if (m_motor.hasResetOccurred())
+			invalidate();
+	}
+
+	private void sent() {
+		m_framesSent++;
+		totalFramesSent++;
+	}
+
+	private void saved() {
+		m_framesSaved++;
+		totalFramesSaved++;
+	}
+}
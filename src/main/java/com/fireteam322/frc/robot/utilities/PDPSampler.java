@@ -0,0 +1,218 @@
+package com.fireteam322.frc.robot.utilities;
+
+import edu.wpi.first.wpilibj.Notifier;
+import edu.wpi.first.wpilibj.PowerDistributionPanel;
+import edu.wpi.first.wpilibj.Timer;
+
+/**
+ * Samples the PDP on its own Notifier thread at a fixed rate and keeps a history of every value.
+ *
+ * <p>Each sample holds the 16 channel currents, the voltage, the temperature and the total
+ * current, stored in primitive ring buffers. Any thread can ask for the latest value, or the
+ * average or peak over a recent window, without taking a lock and without ever talking to the PDP
+ * itself: the sampler is the only writer, and it publishes each sample through a volatile sample
+ * count once the sample is complete. A query that was overtaken by the writer wrapping around the
+ * buffer simply reads again.
+ *
+ * <p>When replaying a session, {@link #replay(double[], int)} hands the sampler recorded values,
+ * which it then stores in place of the PDP's.
+ */
+public class PDPSampler {
+	public static final int CHANNELS = 16;
+	public static final int VOLTAGE = CHANNELS, TEMPERATURE = CHANNELS + 1, TOTAL_CURRENT = CHANNELS + 2;
+	public static final int SERIES = CHANNELS + 3;
+
+	private final PowerDistributionPanel m_pdp;
+	private final Notifier m_notifier;
+	private final double m_period;
+	private final int m_capacity;
+	private final double[] m_timestamps;
+	private final double[] m_values;		// Series by series, m_capacity samples each
+	private volatile long m_count = 0;		// Samples written so far
+	private volatile Runnable m_listener = null;
+	private boolean m_running = false;
+
+	// Recorded values handed over by replay(), stored by the sampler's thread instead of the PDP's.
+	private final DoubleMailbox m_replay = new DoubleMailbox(SERIES);
+	private final double[] m_replayValues = new double[SERIES];
+	private volatile boolean m_replaying = false;
+
+	/**
+	 * Creates a new PDPSampler. It doesn't sample until {@link #start()} is called.
+	 *
+	 * @param pdp The PDP to sample
+	 * @param period The sample period in seconds
+	 * @param capacity The number of samples to keep
+	 */
+	public PDPSampler(PowerDistributionPanel pdp, double period, int capacity) {
+		m_pdp = pdp;
+		m_period = period;
+		m_capacity = Math.max(2, capacity);
+		m_timestamps = new double[m_capacity];
+		m_values = new double[SERIES * m_capacity];
+		m_notifier = new Notifier(this::sample);
+	}
+
+	public synchronized void start() {
+		if (!m_running) {
+			m_running = true;
+			m_notifier.startPeriodic(m_period);
+		}
+	}
+
+	public synchronized void stop() {
+		if (m_running) {
+			m_running = false;
+			m_notifier.stop();
+		}
+	}
+
+	/**
+	 * Sets something to run on the sampler's thread after every sample, e.g. an integrator that
+	 * must see every sample. It must be quick, since it delays the next sample.
+	 *
+	 * @param listener What to run, or null for nothing
+	 */
+	public void setListener(Runnable listener) {
+		m_listener = listener;
+	}
+
+	/**
+	 * Hands the sampler values from a telemetry log, when replaying a session. From then on every
+	 * sample stores the latest replayed values instead of reading the PDP, so everything that reads
+	 * the sampler sees the recorded currents. Replayed values must all come from one thread.
+	 *
+	 * @param values The channel currents, voltage, temperature and total current, as written by
+	 *               {@link #getLatest(double[])}
+	 * @param count The number of values
+	 */
+	public void replay(double[] values, int count) {
+		if (count < SERIES)
+			return;
+		m_replay.write(values);
+		m_replaying = true;
+	}
+
+	public double getPeriod() {
+		return m_period;
+	}
+
+	// The number of samples taken so far.
+	public long getSampleCount() {
+		return m_count;
+	}
+
+	/**
+	 * Returns the latest value of a series.
+	 *
+	 * @param series A channel number (0-15), VOLTAGE, TEMPERATURE or TOTAL_CURRENT
+	 * @return the value, or 0.0 before the first sample
+	 */
+	public double getLatest(int series) {
+		var count = m_count;
+		if (count == 0)
+			return 0.0;
+		return m_values[series * m_capacity + slot(count - 1)];
+	}
+
+	/**
+	 * Copies every series of the latest sample. This is only guaranteed to be one sample when
+	 * called from the listener, on the sampler's thread.
+	 *
+	 * @param destination The array to fill, at least {@link #SERIES} long
+	 */
+	public void getLatest(double[] destination) {
+		for (var series = 0; series < SERIES; series++)
+			destination[series] = getLatest(series);
+	}
+
+	// The FPGA timestamp (in seconds) of the latest sample, or 0.0 before the first sample.
+	public double getLatestTimestamp() {
+		var count = m_count;
+		if (count == 0)
+			return 0.0;
+		return m_timestamps[slot(count - 1)];
+	}
+
+	/**
+	 * Returns the average of a series over a recent window.
+	 *
+	 * @param series A channel number (0-15), VOLTAGE, TEMPERATURE or TOTAL_CURRENT
+	 * @param window The window in seconds, up to the history length
+	 * @return the average, or 0.0 before the first sample
+	 */
+	public double getAverage(int series, double window) {
+		while (true) {
+			var count = m_count;
+			var samples = samples(count, window);
+			if (samples == 0)
+				return 0.0;
+			var sum = 0.0;
+			for (var i = count - samples; i < count; i++)
+				sum += m_values[series * m_capacity + slot(i)];
+			if (isIntact(count, samples))
+				return sum / samples;
+		}
+	}
+
+	/**
+	 * Returns the largest value of a series over a recent window.
+	 *
+	 * @param series A channel number (0-15), VOLTAGE, TEMPERATURE or TOTAL_CURRENT
+	 * @param window The window in seconds, up to the history length
+	 * @return the peak, or 0.0 before the first sample
+	 */
+	public double getPeak(int series, double window) {
+		while (true) {
+			var count = m_count;
+			var samples = samples(count, window);
+			if (samples == 0)
+				return 0.0;
+			var peak = Double.NEGATIVE_INFINITY;
+			for (var i = count - samples; i < count; i++)
+				peak = Math.max(peak, m_values[series * m_capacity + slot(i)]);
+			if (isIntact(count, samples))
+				return peak;
+		}
+	}
+
+	private int slot(long sample) {
+		return (int) (sample % m_capacity);
+	}
+
+	// The number of samples in the window, leaving one slot free for the writer.
+	private int samples(long count, double window) {
+		var samples = Math.max(1, (int) Math.ceil(window / m_period));
+		return (int) Math.min(Math.min(samples, m_capacity - 1), count);
+	}
+
+	// Whether the writer has overwritten any of the samples that were just read.
+	private boolean isIntact(long count, int samples) {
+		return m_count - (count - samples) < m_capacity;
+	}
+
+	// This method is called by the Notifier, on the sampler's thread.
+	private void sample() {
+		var count = m_count;
+		var slot = slot(count);
+		m_timestamps[slot] = Timer.getFPGATimestamp();
+		if (m_replaying) {
+			m_replay.read(m_replayValues);
+			for (var series = 0; series < SERIES; series++)
+				m_values[series * m_capacity + slot] = m_replayValues[series];
+		}
+		else {
+			for (var channel = 0; channel < CHANNELS; channel++)
+				m_values[channel * m_capacity + slot] = m_pdp.getCurrent(channel);
+			m_values[VOLTAGE * m_capacity + slot] = m_pdp.getVoltage();
+			m_values[TEMPERATURE * m_capacity + slot] = m_pdp.getTemperature();
+			m_values[TOTAL_CURRENT * m_capacity + slot] = m_pdp.getTotalCurrent();
+		}
+		// Publishes the sample.
+		m_count = count + 1;
+
+		var listener = m_listener;
+		if (listener != null)
+			listener.run();
+	}
+}
@@ -0,0 +1,42 @@
+package com.fireteam322.frc.robot.utilities;
+
+/**
+ * An F310Controller that plays back inputs recorded by a {@link ControllerRecorder} instead of
+ * reading the Driver Station.
+ *
+ * <p>The controller is always in snapshot mode, and the snapshot is set from the recording rather
+ * than captured, so everything that reads the controller (the Hand getters, JoystickButtons, the
+ * pressed and released checks) sees exactly what it saw when the inputs were recorded.
+ */
+public class ReplayF310Controller extends F310Controller {
+	/**
+	 * Creates a new ReplayF310Controller.
+	 *
+	 * @param port The port of the recorded controller
+	 * @param replay The replay of the log
+	 * @param channel The telemetry channel the controller was recorded on
+	 */
+	public ReplayF310Controller(final int port, TelemetryReplay replay, String channel) {
+		super(port);
+
+		super.setSnapshotMode(true);
+		replay.addListener(channel, this::replay);
+	}
+
+	@Override
+	public void setSnapshotMode(boolean enabled) {
+		// The recording is only available as a snapshot.
+	}
+
+	@Override
+	public void updateSnapshot() {
+		// The snapshot comes from the replay.
+	}
+
+	// This method takes a recorded sample of the axes, the button bit mask and the POV.
+	private void replay(long timestamp, double[] values, int count) {
+		if (count < AXIS_COUNT + 2)
+			return;
+		getSnapshot().set(values, (int) values[AXIS_COUNT], (int) values[AXIS_COUNT + 1]);
+	}
+}
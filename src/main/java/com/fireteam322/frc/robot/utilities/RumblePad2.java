@@ -12,6 +12,13 @@ import edu.wpi.first.wpilibj.GenericHID;
  * and the mapping of ports to hardware buttons depends on the code in the Driver Station.
  */
 public class RumblePad2 extends GenericHID {
+	/**
+	 * The number of axes and buttons on a RumblePad2.
+	 */
+	public static final int AXIS_COUNT = 4, BUTTON_COUNT = 12;
+
+	private HIDSnapshot m_snapshot = null;
+
 	/**
 	 * Represents a digital button on a RumblePad2.
 	 */
@@ -50,6 +57,66 @@ public class RumblePad2 extends GenericHID {
 		HAL.report(tResourceType.kResourceType_Joystick, port);
 	}
 
+	/**
+	 * Turns snapshot mode on or off. In snapshot mode the controller is only read by
+	 * {@link #updateSnapshot()}, and every read in between returns the values it captured.
+	 *
+	 * @param enabled Whether to use snapshot mode
+	 */
+	public void setSnapshotMode(boolean enabled) {
+		m_snapshot = enabled ? new HIDSnapshot(getPort(), AXIS_COUNT, BUTTON_COUNT) : null;
+	}
+
+	public boolean isSnapshotMode() {
+		return m_snapshot != null;
+	}
+
+	// This method captures the controller in snapshot mode, it should be called once per loop before anything reads it.
+	public void updateSnapshot() {
+		if (m_snapshot != null)
+			m_snapshot.capture();
+	}
+
+	// The snapshot, or null if not in snapshot mode.
+	protected HIDSnapshot getSnapshot() {
+		return m_snapshot;
+	}
+
+	@Override
+	public double getRawAxis(int axis) {
+		if (m_snapshot != null)
+			return m_snapshot.getAxis(axis);
+		return super.getRawAxis(axis);
+	}
+
+	@Override
+	public boolean getRawButton(int button) {
+		if (m_snapshot != null)
+			return m_snapshot.getButton(button);
+		return super.getRawButton(button);
+	}
+
+	@Override
+	public boolean getRawButtonPressed(int button) {
+		if (m_snapshot != null)
+			return m_snapshot.getButtonPressed(button);
+		return super.getRawButtonPressed(button);
+	}
+
+	@Override
+	public boolean getRawButtonReleased(int button) {
+		if (m_snapshot != null)
+			return m_snapshot.getButtonReleased(button);
+		return super.getRawButtonReleased(button);
+	}
+
+	@Override
+	public int getPOV(int pov) {
+		if (m_snapshot != null)
+			return pov == 0 ? m_snapshot.getPOV() : -1;
+		return super.getPOV(pov);
+	}
+
 	/**
 	 * Get the X axis value of the controller.
 	 *
@@ -0,0 +1,127 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A shot map: the shooter velocity and feed delay to use for each distance to the target.
+ *
+ * <p>The map is a table of measured shots, sorted by distance and kept in primitive arrays.
+ * Lookups find the two rows around the distance with a binary search and interpolate linearly
+ * between them; distances outside the table use the nearest row. Lookups don't allocate.
+ *
+ * <p>The file is plain text, one shot per line: the distance in meters, the shooter velocity in
+ * RPM and the feed delay in seconds (how long the shooter must hold its speed before a ball is
+ * fed), separated by commas or whitespace. Blank lines and lines starting with # are ignored.
+ */
+public class ShotMap {
+	private final double[] m_distances;
+	private final double[] m_velocities;
+	private final double[] m_feedDelays;
+
+	/**
+	 * Creates a new ShotMap. The rows don't need to be sorted.
+	 *
+	 * @param distances The distances to the target, in meters
+	 * @param velocities The shooter velocities, in RPM
+	 * @param feedDelays The feed delays, in seconds
+	 */
+	public ShotMap(double[] distances, double[] velocities, double[] feedDelays) {
+		if (distances.length == 0 || velocities.length != distances.length || feedDelays.length != distances.length)
+			throw new IllegalArgumentException("A shot map needs at least one row, and the same number of each value");
+
+		// Sort the rows by distance.
+		var rows = distances.length;
+		var order = new Integer[rows];
+		for (var i = 0; i < rows; i++)
+			order[i] = i;
+		Arrays.sort(order, (a, b) -> Double.compare(distances[a], distances[b]));
+
+		m_distances = new double[rows];
+		m_velocities = new double[rows];
+		m_feedDelays = new double[rows];
+		for (var i = 0; i < rows; i++) {
+			m_distances[i] = distances[order[i]];
+			m_velocities[i] = velocities[order[i]];
+			m_feedDelays[i] = feedDelays[order[i]];
+		}
+	}
+
+	/**
+	 * Loads a shot map from a file.
+	 *
+	 * @param file The file to load
+	 * @return the shot map
+	 * @throws IOException if the file can't be read or a line isn't three numbers
+	 */
+	public static ShotMap load(File file) throws IOException {
+		var rows = new ArrayList<double[]>();
+		try (var reader = new BufferedReader(new FileReader(file))) {
+			String line;
+			var lineNumber = 0;
+			while ((line = reader.readLine()) != null) {
+				lineNumber++;
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#"))
+					continue;
+				var fields = line.split("[,\\s]+");
+				if (fields.length != 3)
+					throw new IOException(file + ":" + lineNumber + ": expected distance, velocity and feed delay");
+				try {
+					rows.add(new double[] { Double.parseDouble(fields[0]), Double.parseDouble(fields[1]),
+								Double.parseDouble(fields[2]) });
+				} catch (NumberFormatException e) {
+					throw new IOException(file + ":" + lineNumber + ": " + e.getMessage());
+				}
+			}
+		}
+		if (rows.isEmpty())
+			throw new IOException(file + ": no shots");
+
+		var distances = new double[rows.size()];
+		var velocities = new double[rows.size()];
+		var feedDelays = new double[rows.size()];
+		for (var i = 0; i < rows.size(); i++) {
+			distances[i] = rows.get(i)[0];
+			velocities[i] = rows.get(i)[1];
+			feedDelays[i] = rows.get(i)[2];
+		}
+		return new ShotMap(distances, velocities, feedDelays);
+	}
+
+	public int size() {
+		return m_distances.length;
+	}
+
+	// The shooter velocity in RPM for a distance in meters.
+	public double getVelocity(double distance) {
+		return interpolate(m_velocities, distance);
+	}
+
+	// How long the shooter must hold its speed before a ball is fed, for a distance in meters.
+	public double getFeedDelay(double distance) {
+		return interpolate(m_feedDelays, distance);
+	}
+
+	// This method interpolates a column of the table at a distance.
+	private double interpolate(double[] values, double distance) {
+		var last = m_distances.length - 1;
+		if (!(distance > m_distances[0]))
+			return values[0];
+		if (distance >= m_distances[last])
+			return values[last];
+
+		var index = Arrays.binarySearch(m_distances, distance);
+		if (index >= 0)
+			return values[index];
+		// The distance is between the rows below and above the insertion point.
+		var above = -index - 1;
+		var below = above - 1;
+		var fraction = (distance - m_distances[below]) / (m_distances[above] - m_distances[below]);
+		return values[below] + (values[above] - values[below]) * fraction;
+	}
+}
@@ -0,0 +1,72 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Writes telemetry to a single, buffered log file.
+ */
+public class StreamTelemetrySink implements TelemetrySink {
+	private final File m_file;
+	private OutputStream m_stream = null;
+	private boolean m_newFile = false;
+
+	/**
+	 * Creates a new StreamTelemetrySink. The file is created when the first record is written.
+	 *
+	 * @param file The log file
+	 */
+	public StreamTelemetrySink(File file) {
+		m_file = file;
+	}
+
+	@Override
+	public void prepare(int length) throws IOException {
+		if (m_stream == null)
+			open();
+	}
+
+	@Override
+	public boolean isNewFile() {
+		return m_newFile;
+	}
+
+	@Override
+	public void write(ByteBuffer records) throws IOException {
+		if (m_stream == null)
+			open();
+		m_stream.write(records.array(), records.arrayOffset() + records.position(), records.remaining());
+		records.position(records.limit());
+		m_newFile = false;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		if (m_stream != null)
+			m_stream.flush();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (m_stream != null) {
+			m_stream.close();
+			m_stream = null;
+		}
+	}
+
+	private void open() throws IOException {
+		var directory = m_file.getParentFile();
+		if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Couldn't create " + directory);
+		m_stream = new BufferedOutputStream(new FileOutputStream(m_file), 64 * 1024);
+		m_newFile = true;
+
+		var header = ByteBuffer.allocate(TelemetryFormat.HEADER_SIZE);
+		TelemetryFormat.putHeader(header, 0);
+		m_stream.write(header.array());
+	}
+}
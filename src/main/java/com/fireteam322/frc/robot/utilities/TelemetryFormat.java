@@ -0,0 +1,167 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The binary telemetry log format, shared by the logger and the log reader.
+ *
+ * <p>A log starts with a header followed by records. The header holds the magic bytes, the format
+ * version, the segment number (logs split into several files number them from 0) and the
+ * committed length: the number of bytes of complete records after the header, or 0 if unknown.
+ * Readers trust records up to the committed length, and beyond it only as long as they are
+ * complete, so a file cut short by a power loss is still readable.
+ *
+ * <p>Every record starts with a one byte type and a two byte payload length, so readers can skip
+ * record types they don't know. A zero type byte marks the end of the data, which is also what a
+ * zero filled, preallocated file reads as. All numbers are big-endian.
+ *
+ * <ul>
+ * <li>{@link #TYPE_CHANNEL}: int channel id, string name, short field count, string per field.
+ * Channel definitions are written before the first sample of a channel in every file.
+ * <li>{@link #TYPE_SAMPLE}: int channel id, long FPGA timestamp in microseconds, short value
+ * count, double per value.
+ * <li>{@link #TYPE_DROPPED}: long FPGA timestamp in microseconds, int number of samples dropped
+ * because the logger couldn't keep up.
+ * </ul>
+ * Strings are a short byte count followed by UTF-8 bytes.
+ */
+public final class TelemetryFormat {
+	public static final byte[] MAGIC = {'F', 'T', '3', '2', '2', 'T', 'L', 'M'};
+	public static final short VERSION = 1;
+	public static final int SEGMENT_OFFSET = MAGIC.length + 2;
+	public static final int COMMITTED_OFFSET = SEGMENT_OFFSET + 4;
+	public static final int HEADER_SIZE = COMMITTED_OFFSET + 8;
+
+	public static final byte TYPE_END = 0;
+	public static final byte TYPE_CHANNEL = 1;
+	public static final byte TYPE_SAMPLE = 2;
+	public static final byte TYPE_DROPPED = 3;
+
+	public static final int RECORD_HEADER_SIZE = 3;
+	public static final int MAX_PAYLOAD = 0xFFFF;
+
+	private TelemetryFormat() {
+	}
+
+	/**
+	 * Writes a file header, with the committed length unknown.
+	 *
+	 * @param buffer The buffer to write into
+	 * @param segment The segment number
+	 */
+	public static void putHeader(ByteBuffer buffer, int segment) {
+		buffer.put(MAGIC);
+		buffer.putShort(VERSION);
+		buffer.putInt(segment);
+		buffer.putLong(0);
+	}
+
+	/**
+	 * Checks the magic bytes and version at the buffer's position, and skips past the header.
+	 *
+	 * @param buffer The buffer to read from
+	 * @return true if this is a telemetry log this code can read
+	 */
+	public static boolean checkHeader(ByteBuffer buffer) {
+		if (buffer.remaining() < HEADER_SIZE)
+			return false;
+		for (var i = 0; i < MAGIC.length; i++) {
+			if (buffer.get() != MAGIC[i])
+				return false;
+		}
+		if (buffer.getShort() != VERSION)
+			return false;
+		buffer.position(buffer.position() + HEADER_SIZE - SEGMENT_OFFSET);
+		return true;
+	}
+
+	/**
+	 * Writes a channel definition record.
+	 *
+	 * @param buffer The buffer to write into
+	 * @param id The channel id
+	 * @param name The channel name
+	 * @param fields The names of the channel's values
+	 */
+	public static void putChannel(ByteBuffer buffer, int id, String name, String[] fields) {
+		var start = beginRecord(buffer, TYPE_CHANNEL);
+		buffer.putInt(id);
+		putString(buffer, name);
+		buffer.putShort((short) fields.length);
+		for (String field : fields)
+			putString(buffer, field);
+		endRecord(buffer, start);
+	}
+
+	/**
+	 * Writes a sample record.
+	 *
+	 * @param buffer The buffer to write into
+	 * @param id The channel id
+	 * @param timestamp FPGA timestamp in microseconds
+	 * @param values The array holding the values
+	 * @param offset Index of the first value in the array
+	 * @param count The number of values
+	 */
+	public static void putSample(ByteBuffer buffer, int id, long timestamp, double[] values, int offset, int count) {
+		var start = beginRecord(buffer, TYPE_SAMPLE);
+		buffer.putInt(id);
+		buffer.putLong(timestamp);
+		buffer.putShort((short) count);
+		for (var i = 0; i < count; i++)
+			buffer.putDouble(values[offset + i]);
+		endRecord(buffer, start);
+	}
+
+	/**
+	 * Writes a dropped samples record.
+	 *
+	 * @param buffer The buffer to write into
+	 * @param timestamp FPGA timestamp in microseconds
+	 * @param dropped The number of samples dropped
+	 */
+	public static void putDropped(ByteBuffer buffer, long timestamp, int dropped) {
+		var start = beginRecord(buffer, TYPE_DROPPED);
+		buffer.putLong(timestamp);
+		buffer.putInt(dropped);
+		endRecord(buffer, start);
+	}
+
+	// The size of a channel definition record.
+	public static int channelSize(String name, String[] fields) {
+		var size = RECORD_HEADER_SIZE + 4 + 2 + name.getBytes(StandardCharsets.UTF_8).length + 2;
+		for (String field : fields)
+			size += 2 + field.getBytes(StandardCharsets.UTF_8).length;
+		return size;
+	}
+
+	// The size of a sample record holding the given number of values.
+	public static int sampleSize(int count) {
+		return RECORD_HEADER_SIZE + 4 + 8 + 2 + 8 * count;
+	}
+
+	public static void putString(ByteBuffer buffer, String value) {
+		var bytes = value.getBytes(StandardCharsets.UTF_8);
+		buffer.putShort((short) bytes.length);
+		buffer.put(bytes);
+	}
+
+	public static String getString(ByteBuffer buffer) {
+		var bytes = new byte[buffer.getShort() & 0xFFFF];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static int beginRecord(ByteBuffer buffer, byte type) {
+		var start = buffer.position();
+		buffer.put(type);
+		buffer.putShort((short) 0);	// The length is filled in by endRecord()
+		return start;
+	}
+
+	private static void endRecord(ByteBuffer buffer, int start) {
+		var length = buffer.position() - start - RECORD_HEADER_SIZE;
+		buffer.putShort(start + 1, (short) length);
+	}
+}
@@ -0,0 +1,315 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams the records of a telemetry log (see {@link TelemetryFormat}), one at a time.
+ *
+ * <p>A log is a single file or a series of segments written by a {@link MappedTelemetrySink};
+ * {@link #findSegments(File)} finds the other segments of a log from any one of them. Files are
+ * read through a fixed size buffer and the values of each sample are decoded into an array that
+ * is reused, so logs of any size can be read without holding them in memory.
+ *
+ * <p>Records up to a file's committed length are always read. Past it (a file that wasn't closed
+ * properly) records are read as long as they are complete and well formed, and the rest of the
+ * file is ignored.
+ *
+ * <pre>
+ * try (var reader = new TelemetryLogReader(TelemetryLogReader.findSegments(file))) {
+ *     while (reader.next()) {
+ *         if (reader.getType() == TelemetryFormat.TYPE_SAMPLE)
+ *             ...
+ *     }
+ * }
+ * </pre>
+ */
+public class TelemetryLogReader implements Closeable {
+	private static final int BUFFER_SIZE = 256 * 1024;
+
+	private final List<File> m_files;
+	private int m_nextFile = 0;
+	private FileChannel m_channel = null;
+	private File m_file = null;
+	private long m_committedEnd = 0;	// File offset up to which records are trusted
+	private long m_fileOffset = 0;		// File offset of the buffer's position
+	private final ByteBuffer m_buffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private boolean m_endOfFile = false;
+
+	private final List<String> m_channelNames = new ArrayList<>();
+	private final List<String[]> m_channelFields = new ArrayList<>();
+
+	private byte m_type = TelemetryFormat.TYPE_END;
+	private int m_channelId = -1;
+	private long m_timestamp = 0;
+	private int m_count = 0;
+	private double[] m_values = new double[64];
+	private int m_dropped = 0;
+	private int m_truncatedFiles = 0;
+
+	/**
+	 * Creates a new TelemetryLogReader.
+	 *
+	 * @param files The files of the log, in order
+	 */
+	public TelemetryLogReader(List<File> files) {
+		m_files = new ArrayList<>(files);
+		m_buffer.limit(0);
+	}
+
+	/**
+	 * Finds all segments of the log the given file belongs to. Files that aren't named like a
+	 * segment ({@code <name>-0000.bin}) are a log of their own.
+	 *
+	 * @param file Any file of the log
+	 * @return the files of the log, in order
+	 */
+	public static List<File> findSegments(File file) {
+		var name = file.getName();
+		var directory = file.getAbsoluteFile().getParentFile();
+		if (!name.matches(".*-\\d{4}\\.bin"))
+			return List.of(file);
+
+		var prefix = name.substring(0, name.length() - "0000.bin".length());
+		var segments = directory.listFiles((dir, candidate) -> candidate.startsWith(prefix)
+						   && candidate.length() == name.length()
+						   && candidate.matches(".*-\\d{4}\\.bin"));
+		Arrays.sort(segments);
+		return Arrays.asList(segments);
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @return false at the end of the log
+	 * @throws IOException if a file can't be read or isn't a telemetry log
+	 */
+	public boolean next() throws IOException {
+		while (true) {
+			if (m_channel == null && !openNextFile())
+				return false;
+			if (readRecord())
+				return true;
+			closeFile();
+		}
+	}
+
+	/**
+	 * The type of the current record.
+	 *
+	 * @return one of the TelemetryFormat.TYPE_ constants (unknown types are skipped)
+	 */
+	public byte getType() {
+		return m_type;
+	}
+
+	// The channel id of the current channel definition or sample.
+	public int getChannelId() {
+		return m_channelId;
+	}
+
+	// The FPGA timestamp (in microseconds) of the current sample or dropped samples record.
+	public long getTimestamp() {
+		return m_timestamp;
+	}
+
+	// The number of values in the current sample.
+	public int getCount() {
+		return m_count;
+	}
+
+	/**
+	 * The values of the current sample. The array is reused for the next sample, and may be
+	 * longer than {@link #getCount()}.
+	 *
+	 * @return the values
+	 */
+	public double[] getValues() {
+		return m_values;
+	}
+
+	// The number of samples dropped, for a dropped samples record.
+	public int getDropped() {
+		return m_dropped;
+	}
+
+	// The number of channels defined so far.
+	public int getChannelCount() {
+		return m_channelNames.size();
+	}
+
+	/**
+	 * Returns the name of a channel defined so far.
+	 *
+	 * @param id The channel id
+	 * @return the name, or null if it hasn't been defined
+	 */
+	public String getChannelName(int id) {
+		return id >= 0 && id < m_channelNames.size() ? m_channelNames.get(id) : null;
+	}
+
+	/**
+	 * Returns the field names of a channel defined so far.
+	 *
+	 * @param id The channel id
+	 * @return the field names, or null if it hasn't been defined
+	 */
+	public String[] getChannelFields(int id) {
+		return id >= 0 && id < m_channelFields.size() ? m_channelFields.get(id) : null;
+	}
+
+	// The file being read.
+	public File getFile() {
+		return m_file;
+	}
+
+	// The number of files so far that ended with an incomplete or corrupt record (e.g. after a power loss).
+	public int getTruncatedFiles() {
+		return m_truncatedFiles;
+	}
+
+	@Override
+	public void close() throws IOException {
+		closeFile();
+		m_nextFile = m_files.size();
+	}
+
+	private boolean openNextFile() throws IOException {
+		if (m_nextFile >= m_files.size())
+			return false;
+		m_file = m_files.get(m_nextFile++);
+		m_channel = FileChannel.open(m_file.toPath(), StandardOpenOption.READ);
+		m_buffer.clear().limit(0);
+		m_fileOffset = 0;
+		m_endOfFile = false;
+
+		if (!fill(TelemetryFormat.HEADER_SIZE) || !TelemetryFormat.checkHeader(m_buffer.duplicate()))
+			throw new IOException(m_file + " isn't a telemetry log");
+		m_committedEnd = TelemetryFormat.HEADER_SIZE + m_buffer.getLong(m_buffer.position()
+										  + TelemetryFormat.COMMITTED_OFFSET);
+		skip(TelemetryFormat.HEADER_SIZE);
+		return true;
+	}
+
+	private void closeFile() throws IOException {
+		if (m_channel != null) {
+			m_channel.close();
+			m_channel = null;
+		}
+	}
+
+	// This method reads the next record of the current file, returning false at its end.
+	private boolean readRecord() throws IOException {
+		while (true) {
+			var trusted = m_fileOffset < m_committedEnd;
+			if (!fill(TelemetryFormat.RECORD_HEADER_SIZE))
+				return endOfRecords(!m_buffer.hasRemaining());
+			var start = m_buffer.position();
+			var type = m_buffer.get(start);
+			var length = m_buffer.getShort(start + 1) & 0xFFFF;
+			if (type == TelemetryFormat.TYPE_END)
+				return endOfRecords(true);
+			if (!fill(TelemetryFormat.RECORD_HEADER_SIZE + length))
+				return endOfRecords(false);
+
+			// Decode the record in place, with the buffer limited to it.
+			start = m_buffer.position();
+			var end = start + TelemetryFormat.RECORD_HEADER_SIZE + length;
+			var limit = m_buffer.limit();
+			m_buffer.position(start + TelemetryFormat.RECORD_HEADER_SIZE).limit(end);
+			boolean known, complete;
+			try {
+				known = decode(type);
+				complete = !known || !m_buffer.hasRemaining();
+			} catch (RuntimeException e) {
+				known = false;
+				complete = false;
+			}
+			m_buffer.limit(limit).position(start);
+
+			if (!complete) {
+				// A record that doesn't decode is only expected in the untrusted part of a file.
+				if (trusted)
+					throw new IOException("Corrupt record in " + m_file + " at " + m_fileOffset);
+				return endOfRecords(false);
+			}
+			skip(end - start);
+			if (known)
+				return true;
+		}
+	}
+
+	private boolean endOfRecords(boolean clean) {
+		if (!clean)
+			m_truncatedFiles++;
+		return false;
+	}
+
+	// This method decodes a record, returning false if the type is unknown.
+	private boolean decode(byte type) {
+		var record = m_buffer;
+		switch (type) {
+		case TelemetryFormat.TYPE_CHANNEL:
+			var id = record.getInt();
+			if (id < 0 || id > 0xFFFF)
+				throw new IllegalArgumentException("Bad channel id " + id);
+			var name = TelemetryFormat.getString(record);
+			var fields = new String[record.getShort() & 0xFFFF];
+			for (var i = 0; i < fields.length; i++)
+				fields[i] = TelemetryFormat.getString(record);
+			while (m_channelNames.size() <= id) {
+				m_channelNames.add(null);
+				m_channelFields.add(null);
+			}
+			m_channelNames.set(id, name);
+			m_channelFields.set(id, fields);
+			m_channelId = id;
+			break;
+
+		case TelemetryFormat.TYPE_SAMPLE:
+			m_channelId = record.getInt();
+			m_timestamp = record.getLong();
+			m_count = record.getShort() & 0xFFFF;
+			if (m_values.length < m_count)
+				m_values = new double[m_count];
+			for (var i = 0; i < m_count; i++)
+				m_values[i] = record.getDouble();
+			break;
+
+		case TelemetryFormat.TYPE_DROPPED:
+			m_timestamp = record.getLong();
+			m_dropped = record.getInt();
+			break;
+
+		default:
+			return false;
+		}
+		m_type = type;
+		return true;
+	}
+
+	// This method makes sure the buffer holds at least the given number of bytes, returning false if the file doesn't.
+	private boolean fill(int length) throws IOException {
+		if (m_buffer.remaining() >= length)
+			return true;
+		m_buffer.compact();
+		while (m_buffer.position() < length && !m_endOfFile) {
+			if (m_channel.read(m_buffer) < 0)
+				m_endOfFile = true;
+		}
+		m_buffer.flip();
+		return m_buffer.remaining() >= length;
+	}
+
+	private void skip(int length) {
+		m_buffer.position(m_buffer.position() + length);
+		m_fileOffset += length;
+	}
+}
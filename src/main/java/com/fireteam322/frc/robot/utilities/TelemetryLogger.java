@@ -0,0 +1,282 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Asynchronous binary telemetry logger.
+ *
+ * <p>Robot code registers channels (a name and the names of their values) during initialization
+ * and then logs samples of primitive values. Logging a sample only copies the values into a
+ * preallocated, lock-free ring buffer; a low priority background thread drains the buffer,
+ * encodes the samples in the {@link TelemetryFormat} and hands them to a {@link TelemetrySink},
+ * flushing it periodically. If the writer can't keep up, samples are dropped (and the number
+ * dropped is logged) rather than ever blocking the caller.
+ *
+ * <p>Any number of threads may log samples at the same time.
+ */
+public class TelemetryLogger {
+	private static final int MAX_CHANNELS = 64;
+	private static final int BATCH_SIZE = 64 * 1024;
+	private static final int MAX_DEFINITION_SIZE = 4 * 1024;
+	private static final long IDLE_SLEEP_MS = 10;
+	private static final int MAX_WRITE_FAILURES = 10;
+
+	private final TelemetrySink m_sink;
+	private final int m_capacity;
+	private final int m_mask;
+	private final int m_maxValues;
+	private final long m_flushPeriodNs;
+
+	// The ring buffer. A slot's sequence tells whose turn it is: a producer may fill slot i when
+	// its sequence equals the position being claimed, the writer may drain it once it's one more.
+	private final AtomicLongArray m_sequences;
+	private final int[] m_channels;
+	private final long[] m_timestamps;
+	private final int[] m_counts;
+	private final double[] m_values;
+	private final AtomicLong m_head = new AtomicLong(0);
+	private final AtomicInteger m_dropped = new AtomicInteger(0);
+	private final AtomicInteger m_totalDropped = new AtomicInteger(0);
+
+	private final String[] m_channelNames = new String[MAX_CHANNELS];
+	private final String[][] m_channelFields = new String[MAX_CHANNELS][];
+	private volatile int m_channelCount = 0;
+
+	// Only used by the writer thread.
+	private final ByteBuffer m_buffer = ByteBuffer.allocate(BATCH_SIZE);
+	private long m_tail = 0;
+	private int m_definitionsWritten = 0;
+
+	private Thread m_writer = null;
+	private volatile boolean m_running = false;
+
+	/**
+	 * Creates a new TelemetryLogger. Nothing is written until {@link #start()} is called.
+	 *
+	 * @param sink Where to write the encoded telemetry
+	 * @param capacity The number of samples the ring buffer holds, rounded up to a power of two
+	 * @param maxValues The most values a single sample can hold
+	 * @param flushPeriod How often (in seconds) the sink is flushed
+	 */
+	public TelemetryLogger(TelemetrySink sink, int capacity, int maxValues, double flushPeriod) {
+		m_sink = sink;
+		m_capacity = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+		m_mask = m_capacity - 1;
+		m_maxValues = maxValues;
+		m_flushPeriodNs = (long) (flushPeriod * 1.0e9);
+
+		m_sequences = new AtomicLongArray(m_capacity);
+		for (var i = 0; i < m_capacity; i++)
+			m_sequences.set(i, i);
+		m_channels = new int[m_capacity];
+		m_timestamps = new long[m_capacity];
+		m_counts = new int[m_capacity];
+		m_values = new double[m_capacity * maxValues];
+	}
+
+	/**
+	 * Registers a channel. This allocates, so it should be done during initialization.
+	 *
+	 * @param name The channel name
+	 * @param fields The names of the values in each sample
+	 * @return the channel id to log samples with, or -1 if there are too many channels
+	 */
+	public synchronized int registerChannel(String name, String... fields) {
+		var id = m_channelCount;
+		if (id >= MAX_CHANNELS || fields.length > m_maxValues
+		    || TelemetryFormat.channelSize(name, fields) > MAX_DEFINITION_SIZE) {
+			DriverStation.reportWarning("TelemetryLogger: can't register channel " + name, false);
+			return -1;
+		}
+		m_channelNames[id] = name;
+		m_channelFields[id] = fields.clone();
+		// Publishes the definition to the writer thread.
+		m_channelCount = id + 1;
+		return id;
+	}
+
+	// This method starts the writer thread.
+	public synchronized void start() {
+		if (m_running)
+			return;
+		m_running = true;
+		m_writer = new Thread(this::run, "TelemetryLogger");
+		m_writer.setDaemon(true);
+		m_writer.setPriority(Thread.MIN_PRIORITY);
+		m_writer.start();
+	}
+
+	// This method stops the writer thread once it has written everything logged so far.
+	public synchronized void stop() {
+		if (!m_running)
+			return;
+		m_running = false;
+		try {
+			m_writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Logs all values in the array, see {@link #log(int, double[], int)}.
+	 *
+	 * @param channel The channel id
+	 * @param values The values
+	 * @return false if the sample was dropped
+	 */
+	public boolean log(int channel, double[] values) {
+		return log(channel, values, values.length);
+	}
+
+	/**
+	 * Logs a sample, timestamped with the current FPGA time. The values are copied, so the array
+	 * can be reused right away. This never blocks and never allocates.
+	 *
+	 * @param channel The channel id
+	 * @param values The array holding the values
+	 * @param count The number of values to log
+	 * @return false if the sample was dropped because the buffer is full
+	 */
+	public boolean log(int channel, double[] values, int count) {
+		if (channel < 0)
+			return false;
+		count = Math.min(count, m_maxValues);
+		var timestamp = RobotController.getFPGATime();
+
+		// Claim a slot.
+		var position = m_head.get();
+		var index = 0;
+		while (true) {
+			index = (int) (position & m_mask);
+			var difference = m_sequences.get(index) - position;
+			if (difference == 0) {
+				if (m_head.compareAndSet(position, position + 1))
+					break;
+				position = m_head.get();
+			}
+			else if (difference < 0) {
+				// The writer hasn't drained this slot yet, so the buffer is full.
+				m_dropped.incrementAndGet();
+				m_totalDropped.incrementAndGet();
+				return false;
+			}
+			else
+				position = m_head.get();
+		}
+
+		m_channels[index] = channel;
+		m_timestamps[index] = timestamp;
+		m_counts[index] = count;
+		System.arraycopy(values, 0, m_values, index * m_maxValues, count);
+		// Hands the slot to the writer.
+		m_sequences.set(index, position + 1);
+		return true;
+	}
+
+	// The number of samples dropped since the logger was created.
+	public int getDropped() {
+		return m_totalDropped.get();
+	}
+
+	private void run() {
+		var lastFlush = System.nanoTime();
+		var failures = 0;
+		try {
+			while (true) {
+				var running = m_running;
+				boolean wrote;
+				try {
+					wrote = writeBatch();
+					failures = 0;
+				} catch (RuntimeException e) {
+					// A bug in encoding shouldn't silently kill the writer and leave the ring to fill
+					// up. Report it and carry on draining; give up cleanly if it keeps happening.
+					DriverStation.reportError("Telemetry logging failed: " + e, e.getStackTrace());
+					discardSample();
+					if (++failures >= MAX_WRITE_FAILURES) {
+						m_running = false;
+						m_sink.close();
+						DriverStation.reportError("Telemetry logging stopped after repeated failures", false);
+						return;
+					}
+					wrote = true;
+				}
+				var now = System.nanoTime();
+				if (now - lastFlush >= m_flushPeriodNs) {
+					m_sink.flush();
+					lastFlush = now;
+				}
+				if (!wrote) {
+					if (!running)
+						break;
+					Thread.sleep(IDLE_SLEEP_MS);
+				}
+			}
+			m_sink.close();
+		} catch (IOException e) {
+			m_running = false;
+			DriverStation.reportError("Telemetry logging stopped: " + e.getMessage(), false);
+		} catch (InterruptedException e) {
+			m_running = false;
+		}
+	}
+
+	private boolean hasSample() {
+		return m_sequences.get((int) (m_tail & m_mask)) == m_tail + 1;
+	}
+
+	// This method drops the oldest sample (counting it as dropped), so a sample that can't be
+	// written doesn't block the ones behind it.
+	private void discardSample() {
+		if (!hasSample())
+			return;
+		m_sequences.set((int) (m_tail & m_mask), m_tail + m_capacity);
+		m_tail++;
+		m_dropped.incrementAndGet();
+		m_totalDropped.incrementAndGet();
+	}
+
+	// This method writes one batch of records, returning false if there was nothing to write.
+	private boolean writeBatch() throws IOException {
+		var channelCount = m_channelCount;
+		if (!hasSample() && m_dropped.get() == 0 && m_definitionsWritten == channelCount)
+			return false;
+
+		m_sink.prepare(BATCH_SIZE);
+		if (m_sink.isNewFile())
+			m_definitionsWritten = 0;
+		m_buffer.clear();
+
+		while (m_definitionsWritten < channelCount && m_buffer.remaining() >= MAX_DEFINITION_SIZE) {
+			var id = m_definitionsWritten++;
+			TelemetryFormat.putChannel(m_buffer, id, m_channelNames[id], m_channelFields[id]);
+		}
+
+		var dropped = m_dropped.getAndSet(0);
+		if (dropped > 0)
+			TelemetryFormat.putDropped(m_buffer, RobotController.getFPGATime(), dropped);
+
+		while (hasSample()) {
+			var index = (int) (m_tail & m_mask);
+			if (m_buffer.remaining() < TelemetryFormat.sampleSize(m_counts[index]))
+				break;
+			TelemetryFormat.putSample(m_buffer, m_channels[index], m_timestamps[index], m_values,
+						  index * m_maxValues, m_counts[index]);
+			// Hands the slot back to the producers.
+			m_sequences.set(index, m_tail + m_capacity);
+			m_tail++;
+		}
+
+		m_buffer.flip();
+		m_sink.write(m_buffer);
+		return true;
+	}
+}
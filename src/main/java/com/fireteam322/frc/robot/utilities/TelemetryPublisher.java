@@ -0,0 +1,135 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleSupplier;
+
+import edu.wpi.first.networktables.NetworkTableEntry;
+
+/**
+ * Publishes dashboard telemetry fields, each sampled once per update at its own rate and shared
+ * by every tab that shows it.
+ *
+ * <p>A field is a value source, an update rate and the entries (usually one Shuffleboard widget
+ * per tab) that show it. {@link #update(double)}, called once per loop, reads each field whose
+ * rate is due exactly once and hands the sample to all of its entries through a
+ * {@link DashboardPublisher}, which only sends the entries whose value changed. So a drive encoder
+ * can update at 50 Hz on three tabs for one read, while the PDP temperature is read twice a second
+ * and, most of the time, not sent at all.
+ *
+ * <p>This class is not thread safe; it must only be used from the main robot thread.
+ */
+public class TelemetryPublisher {
+	// Loop timing jitter allowed when deciding whether a field is due, in seconds.
+	private static final double SAMPLE_JITTER = 0.002;
+
+	private static TelemetryPublisher instance = null;
+
+	private final DashboardPublisher m_publisher = new DashboardPublisher();
+	private DoubleSupplier[] m_sources = new DoubleSupplier[0];
+	private boolean[] m_booleans = new boolean[0];
+	private double[] m_periods = new double[0];
+	private double[] m_lastSample = new double[0];
+	private double[] m_values = new double[0];
+	private int[][] m_entries = new int[0][];
+	private int m_samples = 0;
+
+	/**
+	 * Returns the TelemetryPublisher, creating it the first time.
+	 *
+	 * @return the TelemetryPublisher instance
+	 */
+	public static synchronized TelemetryPublisher getInstance() {
+		if (instance == null) {
+			instance = new TelemetryPublisher();
+		}
+		return instance;
+	}
+
+	private TelemetryPublisher() {
+	}
+
+	/**
+	 * Adds a number field. This allocates, so it should be done during initialization.
+	 *
+	 * @param source Where the value is read from
+	 * @param rate How often to read it, in Hz
+	 * @param entries The entries that show it
+	 * @return the field's index, for getDouble()
+	 */
+	public int addDouble(DoubleSupplier source, double rate, NetworkTableEntry... entries) {
+		return add(source, false, rate, entries);
+	}
+
+	/**
+	 * Adds a boolean field. This allocates, so it should be done during initialization.
+	 *
+	 * @param source Where the value is read from
+	 * @param rate How often to read it, in Hz
+	 * @param entries The entries that show it
+	 * @return the field's index, for getBoolean()
+	 */
+	public int addBoolean(BooleanSupplier source, double rate, NetworkTableEntry... entries) {
+		return add(() -> source.getAsBoolean() ? 1.0 : 0.0, true, rate, entries);
+	}
+
+	private int add(DoubleSupplier source, boolean isBoolean, double rate, NetworkTableEntry... entries) {
+		var index = m_sources.length;
+		m_sources = Arrays.copyOf(m_sources, index + 1);
+		m_booleans = Arrays.copyOf(m_booleans, index + 1);
+		m_periods = Arrays.copyOf(m_periods, index + 1);
+		m_lastSample = Arrays.copyOf(m_lastSample, index + 1);
+		m_values = Arrays.copyOf(m_values, index + 1);
+		m_entries = Arrays.copyOf(m_entries, index + 1);
+		m_sources[index] = source;
+		m_booleans[index] = isBoolean;
+		m_periods[index] = rate > 0.0 ? 1.0 / rate : 0.0;
+		m_lastSample[index] = Double.NEGATIVE_INFINITY;
+		// The fields are rate limited here, so the publisher only has to skip unchanged values.
+		m_entries[index] = new int[entries.length];
+		for (var i = 0; i < entries.length; i++) {
+			m_entries[index][i] = isBoolean ? m_publisher.addBoolean(entries[i], 0.0)
+							: m_publisher.addDouble(entries[i], 0.0);
+		}
+		return index;
+	}
+
+	// The latest sample of a number field.
+	public double getDouble(int field) {
+		return m_values[field];
+	}
+
+	// The latest sample of a boolean field.
+	public boolean getBoolean(int field) {
+		return m_values[field] != 0.0;
+	}
+
+	// The number of times a field has been read.
+	public int getSampleCount() {
+		return m_samples;
+	}
+
+	// The number of entry updates actually sent.
+	public int getPublishCount() {
+		return m_publisher.getPublishCount();
+	}
+
+	// This method samples the fields that are due and sends the changes, once per loop.
+	public void update(double now) {
+		for (var i = 0; i < m_sources.length; i++) {
+			if (now - m_lastSample[i] < m_periods[i] - SAMPLE_JITTER)
+				continue;
+			m_lastSample[i] = now;
+			var value = m_sources[i].getAsDouble();
+			m_values[i] = value;
+			m_samples++;
+			for (var entry : m_entries[i]) {
+				if (m_booleans[i])
+					m_publisher.setBoolean(entry, value != 0.0);
+				else
+					m_publisher.setDouble(entry, value);
+			}
+		}
+		m_publisher.publish(now);
+	}
+}
@@ -0,0 +1,179 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.wpi.first.networktables.NetworkTable;
+import edu.wpi.first.networktables.NetworkTableEntry;
+import edu.wpi.first.networktables.NetworkTableInstance;
+import edu.wpi.first.wpilibj.DriverStation;
+import edu.wpi.first.wpilibj.RobotController;
+
+/**
+ * Plays a recorded telemetry log back into the robot code, for running a match again in
+ * simulation.
+ *
+ * <p>The log is streamed with a {@link TelemetryLogReader}. Every call to {@link #update()}
+ * delivers the samples recorded up to the same time after the start of the log as it now is after
+ * the first update, so replay follows the simulation clock. If a pace channel is set, the clock is
+ * ignored and every update delivers the samples up to and including the next sample of that
+ * channel instead; pacing by a channel that was recorded once per robot loop reproduces the
+ * recorded loops exactly, however fast the simulation runs. Samples are handed to the listeners
+ * registered for their channel name and published under the "Replay" NetworkTables table so they
+ * can be compared with the live values. Samples that were dropped while recording are reported as
+ * the replay reaches them, since the replayed session has gaps there.
+ */
+public class TelemetryReplay {
+	/**
+	 * Receives the replayed samples of a channel.
+	 */
+	@FunctionalInterface
+	public interface Listener {
+		/**
+		 * Called with each replayed sample.
+		 *
+		 * @param timestamp The recorded FPGA timestamp in microseconds
+		 * @param values The values; only valid during the call
+		 * @param count The number of values
+		 */
+		void sample(long timestamp, double[] values, int count);
+	}
+
+	private final TelemetryLogReader m_reader;
+	private final NetworkTable m_table = NetworkTableInstance.getDefault().getTable("Replay");
+	private final Map<String, List<Listener>> m_listeners = new HashMap<>();
+	private final List<Listener[]> m_channelListeners = new ArrayList<>();
+	private final List<NetworkTableEntry[]> m_channelEntries = new ArrayList<>();
+	private static final Listener[] NO_LISTENERS = new Listener[0];
+	private final NetworkTableEntry m_droppedEntry = m_table.getEntry("Dropped Samples");
+	private long m_dropped = 0;
+
+	private String m_paceChannel = null;
+	private int m_paceChannelId = -1;
+	private long m_logStart = -1, m_start = -1;
+	private boolean m_pending = false;	// The reader holds a sample that is still in the future
+	private boolean m_finished = false;
+
+	/**
+	 * Creates a new TelemetryReplay.
+	 *
+	 * @param log Any file of the log to replay
+	 */
+	public TelemetryReplay(File log) {
+		m_reader = new TelemetryLogReader(TelemetryLogReader.findSegments(log));
+	}
+
+	/**
+	 * Registers a listener for the samples of a channel. Register listeners before the first
+	 * update.
+	 *
+	 * @param channel The channel name, as registered with the {@link TelemetryLogger}
+	 * @param listener The listener
+	 */
+	public void addListener(String channel, Listener listener) {
+		m_listeners.computeIfAbsent(channel, name -> new ArrayList<>()).add(listener);
+	}
+
+	/**
+	 * Paces the replay by a channel instead of the clock. Set this before the first update.
+	 *
+	 * @param channel The name of a channel that was recorded once per loop, after everything else
+	 *                the loop records before its inputs are read
+	 */
+	public void setPaceChannel(String channel) {
+		m_paceChannel = channel;
+	}
+
+	// This method replays the samples up to the current time, it should be called once per loop.
+	public void update() {
+		if (m_finished)
+			return;
+		var now = RobotController.getFPGATime();
+		try {
+			while (m_pending || m_reader.next()) {
+				m_pending = false;
+				switch (m_reader.getType()) {
+				case TelemetryFormat.TYPE_CHANNEL:
+					defineChannel(m_reader.getChannelId());
+					break;
+
+				case TelemetryFormat.TYPE_SAMPLE:
+					if (m_logStart < 0) {
+						m_logStart = m_reader.getTimestamp();
+						m_start = now;
+					}
+					if (m_paceChannel == null && m_reader.getTimestamp() - m_logStart > now - m_start) {
+						m_pending = true;
+						return;
+					}
+					deliver(m_reader.getChannelId());
+					if (m_reader.getChannelId() == m_paceChannelId)
+						return;
+					break;
+
+				case TelemetryFormat.TYPE_DROPPED:
+					reportDropped();
+					break;
+
+				default:
+					break;
+				}
+			}
+			m_finished = true;
+			DriverStation.reportWarning("Telemetry replay finished", false);
+		} catch (IOException e) {
+			m_finished = true;
+			DriverStation.reportError("Telemetry replay stopped: " + e.getMessage(), false);
+		}
+	}
+
+	public boolean isFinished() {
+		return m_finished;
+	}
+
+	// The number of samples the recording dropped, up to where the replay has got to.
+	public long getDroppedSamples() {
+		return m_dropped;
+	}
+
+	private void reportDropped() {
+		m_dropped += m_reader.getDropped();
+		m_droppedEntry.setDouble(m_dropped);
+		var time = m_logStart < 0 ? 0.0 : (m_reader.getTimestamp() - m_logStart) / 1e6;
+		DriverStation.reportWarning(String.format("Telemetry replay: %d samples were dropped while recording, %.3f s into the log",
+							  m_reader.getDropped(), time), false);
+	}
+
+	private void defineChannel(int id) {
+		while (m_channelListeners.size() <= id) {
+			m_channelListeners.add(NO_LISTENERS);
+			m_channelEntries.add(null);
+		}
+		var name = m_reader.getChannelName(id);
+		var fields = m_reader.getChannelFields(id);
+		var entries = new NetworkTableEntry[fields.length];
+		var subtable = m_table.getSubTable(name);
+		for (var i = 0; i < fields.length; i++)
+			entries[i] = subtable.getEntry(fields[i]);
+		m_channelEntries.set(id, entries);
+		if (name.equals(m_paceChannel))
+			m_paceChannelId = id;
+		m_channelListeners.set(id, m_listeners.getOrDefault(name, List.of()).toArray(NO_LISTENERS));
+	}
+
+	private void deliver(int id) {
+		if (id >= m_channelEntries.size() || m_channelEntries.get(id) == null)
+			return;
+		var values = m_reader.getValues();
+		var count = m_reader.getCount();
+		var entries = m_channelEntries.get(id);
+		for (var i = 0; i < Math.min(count, entries.length); i++)
+			entries[i].setDouble(values[i]);
+		for (var listener : m_channelListeners.get(id))
+			listener.sample(m_reader.getTimestamp(), values, count);
+	}
+}
@@ -0,0 +1,52 @@
+package com.fireteam322.frc.robot.utilities;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Somewhere for the {@link TelemetryLogger} to put encoded telemetry records.
+ *
+ * <p>The logger writes in batches: it calls {@link #prepare(int)} with the most it's going to
+ * write, checks {@link #isNewFile()} to know whether the channel definitions have to be written
+ * again, and then calls {@link #write(ByteBuffer)}. Sinks are only ever used from the logger's
+ * writer thread.
+ */
+public interface TelemetrySink {
+	/**
+	 * Makes room for the next write, opening (or moving on to) a new file if needed.
+	 *
+	 * @param length The most bytes the next write will contain
+	 * @throws IOException if a file can't be opened
+	 */
+	void prepare(int length) throws IOException;
+
+	/**
+	 * Whether nothing has been written to the current file yet, in which case the logger writes
+	 * all channel definitions first so every file can be read on its own.
+	 *
+	 * @return true if the current file is empty
+	 */
+	boolean isNewFile();
+
+	/**
+	 * Writes encoded records.
+	 *
+	 * @param records The records, between the buffer's position and limit
+	 * @throws IOException if writing fails
+	 */
+	void write(ByteBuffer records) throws IOException;
+
+	/**
+	 * Pushes everything written so far towards the storage device.
+	 *
+	 * @throws IOException if flushing fails
+	 */
+	void flush() throws IOException;
+
+	/**
+	 * Flushes and closes the sink.
+	 *
+	 * @throws IOException if closing fails
+	 */
+	void close() throws IOException;
+}
@@ -0,0 +1,111 @@
+package com.fireteam322.frc.robot.utilities;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+
+import org.junit.Test;
+
+public class EnumValueMapTest {
+	// Far more lookups than the JVM's own bookkeeping could hide, if each one allocated.
+	private static final int LOOKUPS = 1_000_000;
+	private static final long ALLOCATION_TOLERANCE = 1024;
+
+	private enum Mode {
+		kOff(0),
+		kOn(1),
+		kBlink(3),
+		kHigh(1000);
+
+		private static final EnumValueMap<Mode> MY_MAP = new EnumValueMap<>(values(), Mode::getValue);
+
+		private final int value;
+
+		private Mode(int value) {
+			this.value = value;
+		}
+
+		public int getValue() {
+			return value;
+		}
+
+		public static Mode getByValue(int value) {
+			return MY_MAP.get(value);
+		}
+	}
+
+	private enum Shared {
+		kFirst(2),
+		kSecond(2);
+
+		private final int value;
+
+		private Shared(int value) {
+			this.value = value;
+		}
+
+		public int getValue() {
+			return value;
+		}
+	}
+
+	@Test
+	public void findsEveryConstant() {
+		for (var mode : Mode.values())
+			assertSame(mode, Mode.getByValue(mode.getValue()));
+	}
+
+	@Test
+	public void returnsNullForUnknownValues() {
+		assertNull(Mode.getByValue(2));
+		assertNull(Mode.getByValue(-1));
+		assertNull(Mode.getByValue(1001));
+		assertNull(Mode.getByValue(Integer.MIN_VALUE));
+		assertNull(Mode.getByValue(Integer.MAX_VALUE));
+	}
+
+	@Test
+	public void laterConstantWinsForSharedValue() {
+		var map = new EnumValueMap<>(Shared.values(), Shared::getValue);
+		assertSame(Shared.kSecond, map.get(2));
+	}
+
+	@Test
+	public void emptyMapFindsNothing() {
+		var map = new EnumValueMap<>(new Mode[0], Mode::getValue);
+		assertNull(map.get(0));
+	}
+
+	@Test
+	public void lookupsDoNotAllocate() {
+		var bean = ManagementFactory.getThreadMXBean();
+		assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+		var threads = (com.sun.management.ThreadMXBean) bean;
+		assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+		var thread = Thread.currentThread().getId();
+
+		// Values both inside and outside the Integer cache, which boxing would allocate for.
+		var values = new int[] { 0, 1, 3, 1000, 2, -500 };
+		var found = 0;
+		for (var i = 0; i < LOOKUPS; i++) {
+			if (Mode.getByValue(values[i % values.length]) != null)
+				found++;
+		}
+
+		var before = threads.getThreadAllocatedBytes(thread);
+		for (var i = 0; i < LOOKUPS; i++) {
+			if (Mode.getByValue(values[i % values.length]) != null)
+				found++;
+		}
+		var allocated = threads.getThreadAllocatedBytes(thread) - before;
+
+		// Using the results keeps the lookups from being optimized away.
+		assertTrue(found > 0);
+		assertTrue("getByValue() allocated " + allocated + " bytes in " + LOOKUPS + " lookups",
+			   allocated < ALLOCATION_TOLERANCE);
+	}
+}